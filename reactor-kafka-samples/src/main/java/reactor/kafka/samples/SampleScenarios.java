@@ -439,11 +439,10 @@ public class SampleScenarios {
         }
         public Flux<?> flux() {
             Scheduler scheduler = Schedulers.newElastic("sample", 60, true);
-            return KafkaReceiver.create(receiverOptions(Collections.singleton(topic)).commitInterval(Duration.ZERO))
-                            .receive()
-                            .groupBy(m -> m.receiverOffset().topicPartition())
-                            .flatMap(partitionFlux -> partitionFlux.publishOn(scheduler)
-                                                                   .map(r -> processRecord(partitionFlux.key(), r))
+            return KafkaReceiver.create(receiverOptions(Collections.singleton(topic)).commitInterval(Duration.ZERO)
+                                                                                     .schedulerSupplier(() -> scheduler))
+                            .receivePartitioned()
+                            .flatMap(partitionFlux -> partitionFlux.map(r -> processRecord(partitionFlux.key(), r))
                                                                    .sample(Duration.ofMillis(5000))
                                                                    .concatMap(offset -> offset.commit()))
                             .doOnCancel(() -> close());
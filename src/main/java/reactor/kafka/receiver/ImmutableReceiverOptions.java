@@ -16,6 +16,7 @@
 package reactor.kafka.receiver;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,11 +25,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.serialization.Deserializer;
 import reactor.core.scheduler.Scheduler;
@@ -52,6 +57,27 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
     private final Collection<TopicPartition> assignTopicPartitions;
     private final Pattern subscribePattern;
     private final Supplier<Scheduler> schedulerSupplier;
+    private final int maxInFlightPerPartition;
+    private final int maxDeferredCommits;
+    private final Duration minPollTimeout;
+    private final long maxBufferedBytes;
+    private final int deserializationParallelism;
+    private final boolean lazyDeserialization;
+    private final int concurrency;
+    private final int transactionMaxRecords;
+    private final long transactionMaxBytes;
+    private final Duration transactionMaxDuration;
+    private final int transactionPrefetch;
+    private final Function<ConsumerRecord<?, ?>, Instant> recordDueTime;
+    private final Map<String, Integer> topicPriorities;
+    private final long topicPriorityMaxLag;
+    private final Predicate<ConsumerRecord<K, V>> recordFilter;
+    private final Predicate<Headers> headerFilter;
+    private final OffsetStore offsetStore;
+    private final Duration offsetStoreMirrorInterval;
+    private final Instant startFrom;
+    private final Map<TopicPartition, Long> startOffsets;
+    private final ReceiverMetrics metrics;
 
     ImmutableReceiverOptions(ReceiverOptions<K, V> options) {
         this(
@@ -69,7 +95,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
             options.subscriptionTopics(),
             options.assignment(),
             options.subscriptionPattern(),
-            options.schedulerSupplier()
+            options.schedulerSupplier(),
+            options.maxInFlightPerPartition(),
+            options.maxDeferredCommits(),
+            options.minPollTimeout(),
+            options.maxBufferedBytes(),
+            options.deserializationParallelism(),
+            options.lazyDeserialization(),
+            options.concurrency(),
+            options.transactionMaxRecords(),
+            options.transactionMaxBytes(),
+            options.transactionMaxDuration(),
+            options.transactionPrefetch(),
+            options.recordDueTime(),
+            options.topicPriorities(),
+            options.topicPriorityMaxLag(),
+            options.recordFilter(),
+            options.headerFilter(),
+            options.offsetStore(),
+            options.offsetStoreMirrorInterval(),
+            options.startFrom(),
+            options.startOffsets(),
+            options.metrics()
         );
     }
 
@@ -88,7 +135,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
         Collection<String> topics,
         Collection<TopicPartition> partitions,
         Pattern pattern,
-        Supplier<Scheduler> supplier
+        Supplier<Scheduler> supplier,
+        int maxInFlightPerPartition,
+        int maxDeferredCommits,
+        Duration minPollTimeout,
+        long maxBufferedBytes,
+        int deserializationParallelism,
+        boolean lazyDeserialization,
+        int concurrency,
+        int transactionMaxRecords,
+        long transactionMaxBytes,
+        Duration transactionMaxDuration,
+        int transactionPrefetch,
+        Function<ConsumerRecord<?, ?>, Instant> recordDueTime,
+        Map<String, Integer> topicPriorities,
+        long topicPriorityMaxLag,
+        Predicate<ConsumerRecord<K, V>> recordFilter,
+        Predicate<Headers> headerFilter,
+        OffsetStore offsetStore,
+        Duration offsetStoreMirrorInterval,
+        Instant startFrom,
+        Map<TopicPartition, Long> startOffsets,
+        ReceiverMetrics metrics
     ) {
         this.properties = new HashMap<>(properties);
         this.assignListeners = new ArrayList<>(assignListeners);
@@ -105,6 +173,27 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
         this.assignTopicPartitions = partitions == null ? null : new HashSet<>(partitions);
         this.subscribePattern = pattern;
         this.schedulerSupplier = supplier;
+        this.maxInFlightPerPartition = maxInFlightPerPartition;
+        this.maxDeferredCommits = maxDeferredCommits;
+        this.minPollTimeout = minPollTimeout;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.deserializationParallelism = deserializationParallelism;
+        this.lazyDeserialization = lazyDeserialization;
+        this.concurrency = concurrency;
+        this.transactionMaxRecords = transactionMaxRecords;
+        this.transactionMaxBytes = transactionMaxBytes;
+        this.transactionMaxDuration = transactionMaxDuration;
+        this.transactionPrefetch = transactionPrefetch;
+        this.recordDueTime = recordDueTime;
+        this.topicPriorities = topicPriorities;
+        this.topicPriorityMaxLag = topicPriorityMaxLag;
+        this.recordFilter = recordFilter;
+        this.headerFilter = headerFilter;
+        this.offsetStore = offsetStore;
+        this.offsetStoreMirrorInterval = offsetStoreMirrorInterval;
+        this.startFrom = startFrom;
+        this.startOffsets = startOffsets;
+        this.metrics = metrics;
     }
 
     @Override
@@ -140,7 +229,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -161,7 +271,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -187,7 +318,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -221,7 +373,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -250,7 +423,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -276,7 +470,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -302,7 +517,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -323,7 +559,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -344,7 +601,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -375,7 +653,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 Objects.requireNonNull(topics),
                 null,
                 null,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -396,7 +695,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 null,
                 null,
                 Objects.requireNonNull(pattern),
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -417,7 +737,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 null,
                 Objects.requireNonNull(partitions),
                 null,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -473,7 +814,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -502,7 +864,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -531,7 +914,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -560,7 +964,1055 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                schedulerSupplier
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int maxInFlightPerPartition() {
+        return maxInFlightPerPartition;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> maxInFlightPerPartition(int maxInFlight) {
+        if (maxInFlight < 0)
+            throw new IllegalArgumentException("Max in-flight records per partition must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlight,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int maxDeferredCommits() {
+        return maxDeferredCommits;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> maxDeferredCommits(int maxDeferred) {
+        if (maxDeferred < 0)
+            throw new IllegalArgumentException("Max deferred commits must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferred,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Duration minPollTimeout() {
+        return minPollTimeout;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> minPollTimeout(Duration timeout) {
+        if (timeout != null && timeout.isNegative())
+            throw new IllegalArgumentException("Min poll timeout must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                timeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public long maxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> maxBufferedBytes(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Max buffered bytes must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int deserializationParallelism() {
+        return deserializationParallelism;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> deserializationParallelism(int parallelism) {
+        if (parallelism < 0)
+            throw new IllegalArgumentException("Deserialization parallelism must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                parallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public boolean lazyDeserialization() {
+        return lazyDeserialization;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> lazyDeserialization(boolean lazy) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazy,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int concurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> concurrency(int concurrency) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be >= 1");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int transactionMaxRecords() {
+        return transactionMaxRecords;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> transactionMaxRecords(int maxRecords) {
+        if (maxRecords < 0)
+            throw new IllegalArgumentException("Transaction max records must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                maxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public long transactionMaxBytes() {
+        return transactionMaxBytes;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> transactionMaxBytes(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Transaction max bytes must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                maxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Duration transactionMaxDuration() {
+        return transactionMaxDuration;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> transactionMaxDuration(Duration maxDuration) {
+        if (maxDuration != null && (maxDuration.isNegative() || maxDuration.isZero()))
+            throw new IllegalArgumentException("Transaction max duration must be > 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                maxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public int transactionPrefetch() {
+        return transactionPrefetch;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> transactionPrefetch(int maxBatches) {
+        if (maxBatches < 0)
+            throw new IllegalArgumentException("Transaction prefetch must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                maxBatches,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Function<ConsumerRecord<?, ?>, Instant> recordDueTime() {
+        return recordDueTime;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> recordDueTime(Function<ConsumerRecord<?, ?>, Instant> dueTime) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                dueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Map<String, Integer> topicPriorities() {
+        return new HashMap<>(topicPriorities);
+    }
+
+    @Override
+    public ReceiverOptions<K, V> topicPriorities(Map<String, Integer> priorities) {
+        Objects.requireNonNull(priorities, "Topic priorities must not be null");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                new HashMap<>(priorities),
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public long topicPriorityMaxLag() {
+        return topicPriorityMaxLag;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> topicPriorityMaxLag(long maxLag) {
+        if (maxLag < 0)
+            throw new IllegalArgumentException("Topic priority max lag must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                maxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Predicate<ConsumerRecord<K, V>> recordFilter() {
+        return recordFilter;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> recordFilter(Predicate<ConsumerRecord<K, V>> filter) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                filter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Predicate<Headers> headerFilter() {
+        return headerFilter;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> headerFilter(Predicate<Headers> filter) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                filter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public OffsetStore offsetStore() {
+        return offsetStore;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> offsetStore(OffsetStore offsetStore) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Duration offsetStoreMirrorInterval() {
+        return offsetStoreMirrorInterval;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> offsetStoreMirrorInterval(Duration mirrorInterval) {
+        if (mirrorInterval != null && mirrorInterval.isNegative())
+            throw new IllegalArgumentException("Offset store mirror interval must be >= 0");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                mirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Instant startFrom() {
+        return startFrom;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> startFrom(Instant startTime) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startTime,
+                startOffsets,
+                metrics
+        );
+    }
+
+    @Override
+    public Map<TopicPartition, Long> startOffsets() {
+        return new HashMap<>(startOffsets);
+    }
+
+    @Override
+    public ReceiverOptions<K, V> startOffsets(Map<TopicPartition, Long> offsets) {
+        Objects.requireNonNull(offsets, "Start offsets must not be null");
+
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                new HashMap<>(offsets),
+                metrics
+        );
+    }
+
+    @Override
+    public ReceiverMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public ReceiverOptions<K, V> metrics(ReceiverMetrics metrics) {
+        return new ImmutableReceiverOptions<>(
+                properties,
+                assignListeners,
+                revokeListeners,
+                keyDeserializer,
+                valueDeserializer,
+                pollTimeout,
+                closeTimeout,
+                commitInterval,
+                commitBatchSize,
+                atmostOnceCommitAheadSize,
+                maxCommitAttempts,
+                subscribeTopics,
+                assignTopicPartitions,
+                subscribePattern,
+                schedulerSupplier,
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -586,7 +2038,28 @@ class ImmutableReceiverOptions<K, V> implements ReceiverOptions<K, V> {
                 subscribeTopics,
                 assignTopicPartitions,
                 subscribePattern,
-                Objects.requireNonNull(schedulerSupplier)
+                Objects.requireNonNull(schedulerSupplier),
+                maxInFlightPerPartition,
+                maxDeferredCommits,
+                minPollTimeout,
+                maxBufferedBytes,
+                deserializationParallelism,
+                lazyDeserialization,
+                concurrency,
+                transactionMaxRecords,
+                transactionMaxBytes,
+                transactionMaxDuration,
+                transactionPrefetch,
+                recordDueTime,
+                topicPriorities,
+                topicPriorityMaxLag,
+                recordFilter,
+                headerFilter,
+                offsetStore,
+                offsetStoreMirrorInterval,
+                startFrom,
+                startOffsets,
+                metrics
         );
     }
 
@@ -15,14 +15,18 @@
  */
 package reactor.kafka.receiver;
 
+import java.util.Map;
 import java.util.function.Function;
 
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
 import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.internals.ConcurrentKafkaReceiver;
 import reactor.kafka.receiver.internals.ConsumerFactory;
 import reactor.kafka.receiver.internals.DefaultKafkaReceiver;
 import reactor.kafka.sender.KafkaSender;
@@ -47,7 +51,7 @@ public interface KafkaReceiver<K, V> {
      * @return new receiver instance
      */
     static <K, V> KafkaReceiver<K, V> create(ReceiverOptions<K, V> options) {
-        return new DefaultKafkaReceiver<>(ConsumerFactory.INSTANCE, options);
+        return create(ConsumerFactory.INSTANCE, options);
     }
 
     /**
@@ -61,6 +65,8 @@ public interface KafkaReceiver<K, V> {
      * @return new receiver instance
      */
     static <K, V> KafkaReceiver<K, V> create(ConsumerFactory factory, ReceiverOptions<K, V> options) {
+        if (options.concurrency() > 1)
+            return new ConcurrentKafkaReceiver<>(factory, options);
         return new DefaultKafkaReceiver<>(factory, options);
     }
 
@@ -79,6 +85,65 @@ public interface KafkaReceiver<K, V> {
      */
     Flux<ReceiverRecord<K, V>> receive();
 
+    /**
+     * Starts a Kafka consumer that consumes records from the subscriptions or partition
+     * assignments configured for this receiver and returns a {@link Flux} that emits one
+     * {@link GroupedFlux} for each assigned partition. Each partition Flux is emitted when
+     * the partition is assigned and completes when the partition is revoked. The Kafka consumer
+     * is closed when the returned Flux terminates.
+     * <p>
+     * Records of each partition are queued separately and delivered on the Scheduler configured
+     * using {@link ReceiverOptions#schedulerSupplier(java.util.function.Supplier)} when
+     * requests are made on the partition Flux. A partition whose queue is full is paused
+     * without affecting the delivery of records from other partitions.
+     * <p>
+     * As with {@link #receive()}, every record must be acknowledged using {@link ReceiverOffset#acknowledge()}
+     * or committed using {@link ReceiverOffset#commit()} in order to commit its offset.
+     *
+     * @return Flux of partition Fluxes of inbound receiver records that are committed only after acknowledgement
+     */
+    Flux<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> receivePartitioned();
+
+    /**
+     * Starts a Kafka consumer that consumes records from the subscriptions or partition
+     * assignments configured for this receiver. Each batch of records returned by {@link Consumer#poll(long)}
+     * is delivered as one {@link ReceiverRecords} element on the returned Flux when requests are made
+     * on the Flux. The Kafka consumer is closed when the returned Flux terminates.
+     * <p>
+     * Every batch must be acknowledged using {@link ReceiverRecords#acknowledge()} or committed using
+     * {@link ReceiverRecords#commit()} in order to commit the offsets of its records. Offsets are updated
+     * once for each partition of the batch rather than for each record, avoiding per-record allocations
+     * for applications that process records in batches.
+     *
+     * @return Flux of inbound record batches that are committed only after acknowledgement
+     */
+    Flux<ReceiverRecords<K, V>> receiveBatch();
+
+    /**
+     * Starts a Kafka consumer that consumes records from the subscriptions or partition
+     * assignments configured for this receiver and returns a {@link Flux} that delivers every
+     * record to each of <code>subscribers</code> subscribers. A single Kafka consumer and poll loop
+     * are shared by all subscribers. The consumer is started when the expected number of subscribers
+     * have subscribed and is closed when the returned Flux terminates or any one of the subscribers
+     * cancels its subscription, which also completes the Flux of the other subscribers.
+     * <p>
+     * Records are queued separately for each subscriber and delivered on the Scheduler configured
+     * using {@link ReceiverOptions#schedulerSupplier(java.util.function.Supplier)}. Records are
+     * consumed from Kafka at the rate of the slowest subscriber.
+     * <p>
+     * Every subscriber must acknowledge each record using {@link ReceiverOffset#acknowledge()}
+     * or commit it using {@link ReceiverOffset#commit()}. The offset of a record is committed only
+     * after all subscribers have acknowledged the record. Acknowledgements may arrive in any order;
+     * a record is committed only after all preceding records of its partition have been acknowledged
+     * by all subscribers. A partition is paused while the number of its records acknowledged by all
+     * subscribers whose commit is deferred reaches {@link ReceiverOptions#maxDeferredCommits(int)}, or
+     * twice the number of records prefetched for each subscriber if that is not configured.
+     *
+     * @param subscribers the number of subscribers that share the Kafka consumer
+     * @return Flux of inbound receiver records that are committed only after acknowledgement by all subscribers
+     */
+    Flux<ReceiverRecord<K, V>> receiveMulticast(int subscribers);
+
     /**
      * Returns a {@link Flux} containing each batch of consumer records returned by {@link Consumer#poll(long)}.
      * The maximum number of records returned in each batch can be configured on {@link ReceiverOptions} by setting
@@ -99,7 +164,9 @@ public interface KafkaReceiver<K, V> {
      * <p>
      * This mode is expensive since each method is committed individually and records are
      * not delivered until the commit operation succeeds. The cost of commits may be reduced by
-     * configuring {@link ReceiverOptions#atmostOnceCommitAheadSize()}. The maximum number of records that
+     * configuring {@link ReceiverOptions#atmostOnceCommitAheadSize()}. Commits are then issued ahead
+     * asynchronously when half the offsets committed ahead have been dispatched, and records are
+     * delayed only if they overtake the last successful commit. The maximum number of records that
      * may be lost on each partition if the consuming application crashes is <code>commitAheadSize + 1</code>.
      *
      * @return Flux of consumer records whose offsets have been committed prior to dispatch
@@ -116,6 +183,11 @@ public interface KafkaReceiver<K, V> {
      * are committed using the provided <code>transactionManager</code> within the transaction
      * started for that Flux.
      * <p>
+     * By default, each inner Flux contains the records of one poll. Transactions may span multiple
+     * polls to reduce the overhead of transactions by configuring {@link ReceiverOptions#transactionMaxRecords(int)},
+     * {@link ReceiverOptions#transactionMaxBytes(long)} or {@link ReceiverOptions#transactionMaxDuration(java.time.Duration)}.
+     * Records are then delivered on the inner Flux as they are polled until a transaction bound is reached.
+     * <p>
      * See @link {@link KafkaSender#transactionManager()} for details on configuring a transactional
      * sender and the threading model required for transactional/exactly-once semantics.
      * </p>
@@ -134,6 +206,73 @@ public interface KafkaReceiver<K, V> {
      */
     Flux<Flux<ConsumerRecord<K, V>>> receiveExactlyOnce(TransactionManager transactionManager);
 
+    /**
+     * Materializes the latest value of each key of the assigned partitions into an in-memory table,
+     * typically from a compacted topic. Assigned partitions are read from the beginning and records with
+     * null values delete their keys from the table. Records of all assigned partitions are fetched in
+     * each poll and applied to the table on the polling thread, so partitions are bootstrapped in parallel
+     * and the table is not limited by the rate at which records are published. With {@link ReceiverOptions#concurrency()}
+     * greater than one, partitions are bootstrapped in parallel by each consumer into a shared table.
+     * <p>
+     * The returned Flux emits a read-only concurrent view of the table when the position of every
+     * assigned partition has reached the end offset of the partition at the time it was assigned.
+     * The table continues to be updated from the tail of the partitions until the Flux is cancelled,
+     * which closes the consumer. No offsets are committed. Manual assignment of all partitions of the
+     * topic using {@link ReceiverOptions#assignment(java.util.Collection)} should be used unless the table
+     * is intended to contain only the partitions assigned to this receiver, since keys of revoked partitions
+     * are not removed from the table. {@link ReceiverOptions#deserializationParallelism(int)} is ignored
+     * since records are deserialized on the polling thread.
+     * <p>
+     * Example usage:
+     * <pre>
+     * {@code
+     * receiver.materialize()
+     *         .doOnNext(table -> startServing(table))
+     *         .subscribe();
+     * }
+     * </pre>
+     *
+     * @return Flux that emits the table when it is ready and never completes
+     */
+    Flux<Map<K, V>> materialize();
+
+    /**
+     * Creates the Kafka {@link Consumer} of this receiver ahead of the first subscription to reduce the
+     * latency of the first records. The consumer subscribes to or is assigned partitions and is polled
+     * until partitions have been assigned, which fetches metadata, joins the consumer group and fetches
+     * committed offsets or resets the positions of the assigned partitions. Assigned partitions are paused
+     * until the Flux returned by one of the receive methods of this receiver is subscribed, which uses the
+     * warmed up consumer. Assign listeners are invoked with the partitions assigned during warm up when the
+     * receiver is subscribed.
+     * <p>
+     * The receive Flux must be subscribed after the returned Mono completes, and should be subscribed
+     * within the <code>max.poll.interval.ms</code> of the consumer to retain its group membership. Cancelling
+     * the returned Mono stops waiting for partitions to be assigned and closes the consumer. Otherwise the consumer
+     * is closed when the receive Flux terminates, or by {@link #releaseWarmUp()} if the receiver will not be subscribed. If the deserialization mode of the receive method differs from the options used during warm up,
+     * the warmed up consumer is closed and a new consumer is created.
+     * <p>
+     * Example usage:
+     * <pre>
+     * {@code
+     * receiver.warmUp().thenMany(receiver.receive())
+     *         .subscribe(r -> process(r));
+     * }
+     * </pre>
+     *
+     * @return Mono that completes when the consumer is ready to fetch records
+     */
+    Mono<Void> warmUp();
+
+    /**
+     * Closes the consumer created by {@link #warmUp()} if the receive Flux of this receiver has not been
+     * subscribed. The consumer retains its membership of the consumer group until it is closed, so this
+     * should be invoked if a warmed up receiver will not be subscribed. A new consumer is created if the
+     * receiver is subscribed after the warmed up consumer has been released.
+     *
+     * @return Mono that completes when the warmed up consumer has been closed
+     */
+    Mono<Void> releaseWarmUp();
+
     /**
      * Invokes the specified function on the Kafka {@link Consumer} associated with this {@link KafkaReceiver}.
      * The function is scheduled when the returned {@link Mono} is subscribed to. The function is
@@ -173,4 +312,25 @@ public interface KafkaReceiver<K, V> {
      * @return Mono that completes with the value returned by <code>function</code>
      */
     <T> Mono<T> doOnConsumer(Function<Consumer<K, V>, ? extends T> function);
+
+    /**
+     * Pauses fetching of records from the specified partitions until they are resumed using
+     * {@link #resume(TopicPartition...)}. Unlike {@link Consumer#pause(java.util.Collection)} invoked
+     * using {@link #doOnConsumer(Function)}, partitions paused using this method are not resumed
+     * by the receiver when there is demand for records, so that load may be shed from specific
+     * partitions. Partitions that are not currently assigned to this receiver are paused if they are
+     * assigned later. Records of the partitions that have already been fetched may still be delivered.
+     *
+     * @param partitions Partitions to pause
+     */
+    void pause(TopicPartition... partitions);
+
+    /**
+     * Resumes fetching of records from the specified partitions that were paused using
+     * {@link #pause(TopicPartition...)} or {@link ReceiverPartition#pause()}. Partitions may still
+     * be paused by the receiver if there is no demand for their records.
+     *
+     * @param partitions Partitions to resume
+     */
+    void resume(TopicPartition... partitions);
 }
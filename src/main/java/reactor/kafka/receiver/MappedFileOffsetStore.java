@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * {@link OffsetStore} backed by a memory-mapped file. Each partition has a fixed slot in the file
+ * and storing an offset is a single write to the mapped memory, so offsets may be committed at a high
+ * rate without round-trips to the broker. Stored offsets survive failures of the process as soon as they
+ * are written, since the operating system writes mapped pages to the file. The file is forced to the
+ * storage device when offsets are stored if <code>syncInterval</code> has elapsed since the last sync
+ * and when the store is closed, which bounds the offsets that may be lost on a failure of the host.
+ * Offset metadata is not stored.
+ * <p>
+ * A file may be used by only one store at a time. Example usage:
+ * <pre>
+ * {@code
+ * MappedFileOffsetStore offsetStore = MappedFileOffsetStore.create(Paths.get("offsets.dat"), Duration.ofSeconds(1));
+ * ReceiverOptions<Integer, String> options = receiverOptions.assignment(partitions).offsetStore(offsetStore);
+ * }
+ * </pre>
+ */
+public class MappedFileOffsetStore implements OffsetStore, Closeable {
+
+    private static final int MAGIC = 0x524b4f53;
+    private static final int VERSION = 1;
+    // Header: magic, version, number of slots in use, reserved
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_COUNT_POSITION = 8;
+    // Slot: offset, partition, topic length, topic. Offsets are eight byte aligned.
+    private static final int SLOT_SIZE = 272;
+    private static final int MAX_TOPIC_LENGTH = SLOT_SIZE - 14;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final FileChannel channel;
+    private final long syncIntervalNanos;
+    private final Map<TopicPartition, Integer> slots;
+    private MappedByteBuffer buffer;
+    private int slotCount;
+    private long lastSyncNanos;
+    private boolean unsynced;
+
+    MappedFileOffsetStore(FileChannel channel, Duration syncInterval) throws IOException {
+        this.channel = channel;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.slots = new HashMap<>();
+        this.lastSyncNanos = System.nanoTime();
+        long size = channel.size();
+        if (size == 0) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) INITIAL_SLOTS * SLOT_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(SLOT_COUNT_POSITION, 0);
+            buffer.force();
+        } else {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Invalid offset store file");
+            slotCount = buffer.getInt(SLOT_COUNT_POSITION);
+            if (slotCount < 0 || slotPosition(slotCount) > size)
+                throw new IOException("Invalid offset store file");
+            for (int slot = 0; slot < slotCount; slot++) {
+                int position = slotPosition(slot);
+                int partition = buffer.getInt(position + 8);
+                byte[] topic = new byte[buffer.getShort(position + 12)];
+                for (int i = 0; i < topic.length; i++)
+                    topic[i] = buffer.get(position + 14 + i);
+                slots.put(new TopicPartition(new String(topic, StandardCharsets.UTF_8), partition), slot);
+            }
+        }
+    }
+
+    /**
+     * Opens the offset store backed by the file at <code>path</code>, creating the file if it doesn't exist.
+     *
+     * @param path Path of the offset store file
+     * @param syncInterval Minimum interval between syncs of the file to the storage device,
+     *        or zero to sync whenever offsets are stored
+     * @return offset store backed by the file
+     * @throws IOException if the file could not be opened or is not a valid offset store file
+     */
+    public static MappedFileOffsetStore create(Path path, Duration syncInterval) throws IOException {
+        if (syncInterval.isNegative())
+            throw new IllegalArgumentException("Sync interval must be >= 0");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedFileOffsetStore(channel, syncInterval);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void store(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet())
+            buffer.putLong(slotPosition(slot(entry.getKey())), entry.getValue().offset());
+        unsynced = true;
+        long now = System.nanoTime();
+        if (now - lastSyncNanos >= syncIntervalNanos) {
+            buffer.force();
+            lastSyncNanos = now;
+            unsynced = false;
+        }
+    }
+
+    @Override
+    public synchronized Map<TopicPartition, Long> load(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            Integer slot = slots.get(partition);
+            long offset = slot != null ? buffer.getLong(slotPosition(slot)) : -1L;
+            if (offset >= 0)
+                offsets.put(partition, offset);
+        }
+        return offsets;
+    }
+
+    /**
+     * Syncs stored offsets to the storage device and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        if (unsynced)
+            buffer.force();
+        channel.close();
+    }
+
+    private int slot(TopicPartition partition) {
+        Integer slot = slots.get(partition);
+        if (slot == null) {
+            byte[] topic = partition.topic().getBytes(StandardCharsets.UTF_8);
+            if (topic.length > MAX_TOPIC_LENGTH)
+                throw new IllegalArgumentException("Topic name too long for offset store: " + partition.topic());
+            slot = slotCount;
+            int position = slotPosition(slot);
+            if (position + SLOT_SIZE > buffer.capacity())
+                grow();
+            buffer.putLong(position, -1L);
+            buffer.putInt(position + 8, partition.partition());
+            buffer.putShort(position + 12, (short) topic.length);
+            for (int i = 0; i < topic.length; i++)
+                buffer.put(position + 14 + i, topic[i]);
+            // The slot is added to the header after it has been written
+            slotCount++;
+            buffer.putInt(SLOT_COUNT_POSITION, slotCount);
+            slots.put(partition, slot);
+        }
+        return slot;
+    }
+
+    private void grow() {
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2L * (buffer.capacity() - HEADER_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.TopicPartition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link ReceiverMetrics} that records receiver metrics in a Micrometer {@link MeterRegistry}.
+ * Micrometer is an optional dependency of reactor-kafka and must be added to the classpath
+ * of applications that use this class. Gauges of receivers that share an instance are combined,
+ * by adding pending requests and queued events and using the maximum of consecutive commit failures
+ * and poll timeouts.
+ * Paused times and acknowledgement delays are tagged with the topic and partition.
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * ReceiverMetrics metrics = MicrometerReceiverMetrics.create(registry, Tags.of("receiver", "orders"));
+ * ReceiverOptions<Integer, String> options = receiverOptions.metrics(metrics);
+ * }
+ * </pre>
+ */
+public class MicrometerReceiverMetrics implements ReceiverMetrics {
+
+    private static final String PREFIX = "reactor.kafka.receiver.";
+
+    private final MeterRegistry registry;
+    private final Iterable<Tag> tags;
+    private final Timer pollLatency;
+    private final DistributionSummary pollRecords;
+    private final Timer commitLatency;
+    private final ConcurrentMap<TopicPartition, Timer> pausedTimes;
+    private final ConcurrentMap<TopicPartition, Timer> acknowledgeDelays;
+    private final Set<Gauges> gauges;
+
+    MicrometerReceiverMetrics(MeterRegistry registry, Iterable<Tag> tags) {
+        this.registry = registry;
+        this.tags = tags;
+        this.pausedTimes = new ConcurrentHashMap<>();
+        this.acknowledgeDelays = new ConcurrentHashMap<>();
+        this.gauges = new CopyOnWriteArraySet<>();
+        pollLatency = Timer.builder(PREFIX + "poll")
+                .description("Time spent in consumer polls")
+                .tags(tags)
+                .register(registry);
+        pollRecords = DistributionSummary.builder(PREFIX + "poll.records")
+                .description("Number of records returned by consumer polls")
+                .baseUnit("records")
+                .tags(tags)
+                .register(registry);
+        commitLatency = Timer.builder(PREFIX + "commit")
+                .description("Time taken by successful commits")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(PREFIX + "requests.pending", this, MicrometerReceiverMetrics::requestsPending)
+                .description("Records requested by subscribers that have not been emitted")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(PREFIX + "event.queue", this, MicrometerReceiverMetrics::eventQueueDepth)
+                .description("Events waiting to be executed on the consumer thread")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(PREFIX + "commit.consecutive.failures", this, MicrometerReceiverMetrics::consecutiveCommitFailures)
+                .description("Consecutive retriable commit failures since the last successful commit")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder(PREFIX + "poll.timeout", this, TimeUnit.NANOSECONDS, MicrometerReceiverMetrics::pollTimeout)
+                .description("Timeout of the next consumer poll")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Creates metrics that are registered in <code>registry</code> with the specified common tags.
+     *
+     * @param registry Registry in which meters are registered
+     * @param tags Tags added to all meters, for example to identify the receiver
+     * @return metrics listener that may be configured using {@link ReceiverOptions#metrics(ReceiverMetrics)}
+     */
+    public static MicrometerReceiverMetrics create(MeterRegistry registry, Iterable<Tag> tags) {
+        return new MicrometerReceiverMetrics(registry, tags);
+    }
+
+    @Override
+    public void bind(Gauges gauges) {
+        this.gauges.add(gauges);
+    }
+
+    @Override
+    public void unbind(Gauges gauges) {
+        this.gauges.remove(gauges);
+    }
+
+    @Override
+    public void onPoll(long latencyNanos, int records) {
+        pollLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        pollRecords.record(records);
+    }
+
+    @Override
+    public void onResume(TopicPartition partition, long pausedNanos) {
+        pausedTimes.computeIfAbsent(partition, p -> partitionTimer(PREFIX + "paused", "Time for which partitions were paused", p))
+                .record(pausedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onCommit(long latencyNanos) {
+        commitLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onCommitFailure(Exception exception, int consecutiveFailures) {
+        Counter.builder(PREFIX + "commit.failures")
+                .description("Number of failed commits")
+                .tags(tags)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onAcknowledge(TopicPartition partition, long delayNanos) {
+        acknowledgeDelays.computeIfAbsent(partition, p -> partitionTimer(PREFIX + "acknowledge.delay", "Time from emission to acknowledgement of records", p))
+                .record(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer partitionTimer(String name, String description, TopicPartition partition) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .register(registry);
+    }
+
+    private double requestsPending() {
+        double requests = 0;
+        for (Gauges g : gauges)
+            requests += g.requestsPending();
+        return requests;
+    }
+
+    private double eventQueueDepth() {
+        int depth = 0;
+        for (Gauges g : gauges)
+            depth += g.eventQueueDepth();
+        return depth;
+    }
+
+    private double consecutiveCommitFailures() {
+        int failures = 0;
+        for (Gauges g : gauges)
+            failures = Math.max(failures, g.consecutiveCommitFailures());
+        return failures;
+    }
+
+    private double pollTimeout() {
+        long nanos = 0;
+        for (Gauges g : gauges)
+            nanos = Math.max(nanos, g.pollTimeout().toNanos());
+        return nanos;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Store for committed offsets that replaces commits to Kafka when configured using
+ * {@link ReceiverOptions#offsetStore(OffsetStore)}. Offsets acknowledged or committed using
+ * {@link ReceiverOffset} are stored instead of being committed to the group coordinator, and
+ * partitions are positioned at their stored offsets when they are assigned to the receiver.
+ * Offset stores are intended for receivers that manage partitions using {@link ReceiverOptions#assignment(Collection)}.
+ * <p>
+ * All methods are invoked on the thread used for other consumer operations of the receiver.
+ *
+ * @see MappedFileOffsetStore
+ */
+public interface OffsetStore {
+
+    /**
+     * Stores the offsets of the next records to consume from each of the partitions in <code>offsets</code>.
+     * Offsets are committed when this method returns, exceptions thrown by this method fail the commit.
+     *
+     * @param offsets Offsets to store
+     */
+    void store(Map<TopicPartition, OffsetAndMetadata> offsets);
+
+    /**
+     * Returns the stored offsets of the specified partitions. Partitions without stored offsets
+     * are omitted from the returned map and are positioned by the consumer as if no offsets
+     * were committed.
+     *
+     * @param partitions Partitions assigned to the receiver
+     * @return stored offsets of the next records to consume
+     */
+    Map<TopicPartition, Long> load(Collection<TopicPartition> partitions);
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.time.Duration;
+
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Listener for metrics of the reactive layer of {@link KafkaReceiver}, configured using
+ * {@link ReceiverOptions#metrics(ReceiverMetrics)}. Metrics of the underlying Kafka consumer
+ * are available using {@link KafkaReceiver#doOnConsumer(java.util.function.Function)}.
+ * <p>
+ * Callbacks are invoked on the thread used for consumer operations, except for
+ * {@link #onAcknowledge(TopicPartition, long)} which is invoked on the thread that acknowledges
+ * the record. Implementations must be thread-safe and should not block since they delay polls.
+ * A single instance may be shared by multiple receivers. All callbacks have empty default
+ * implementations.
+ *
+ * @see MicrometerReceiverMetrics
+ */
+public interface ReceiverMetrics {
+
+    /**
+     * Invoked when a receiver flux is subscribed. The gauges of the receiver may be read
+     * from any thread until {@link #unbind(Gauges)} is invoked when the flux terminates.
+     *
+     * @param gauges Current state of the receiver
+     */
+    default void bind(Gauges gauges) {
+    }
+
+    /**
+     * Invoked when a receiver flux terminates.
+     *
+     * @param gauges Gauges passed to {@link #bind(Gauges)} when the flux was subscribed
+     */
+    default void unbind(Gauges gauges) {
+    }
+
+    /**
+     * Invoked after every poll of the consumer.
+     *
+     * @param latencyNanos Time spent in {@link org.apache.kafka.clients.consumer.Consumer#poll(java.time.Duration)}
+     * @param records Number of records returned by the poll, before records are filtered
+     */
+    default void onPoll(long latencyNanos, int records) {
+    }
+
+    /**
+     * Invoked when a partition paused by the receiver is resumed or revoked. Partitions are paused
+     * when there is no demand for their records or when paused using {@link ReceiverPartition#pause()}.
+     *
+     * @param partition Partition that was paused
+     * @param pausedNanos Time for which the partition was paused
+     */
+    default void onResume(TopicPartition partition, long pausedNanos) {
+    }
+
+    /**
+     * Invoked when offsets are committed successfully.
+     *
+     * @param latencyNanos Time from the start of the commit until it completed
+     */
+    default void onCommit(long latencyNanos) {
+    }
+
+    /**
+     * Invoked when a commit fails.
+     *
+     * @param exception Exception that failed the commit
+     * @param consecutiveFailures Number of consecutive retriable failures including this commit
+     */
+    default void onCommitFailure(Exception exception, int consecutiveFailures) {
+    }
+
+    /**
+     * Invoked when a record emitted by the receiver is acknowledged or committed using its
+     * {@link ReceiverOffset}. Records of {@link KafkaReceiver#receiveAutoAck()} and
+     * {@link KafkaReceiver#receiveAtmostOnce()} are not reported.
+     *
+     * @param partition Partition of the record
+     * @param delayNanos Time from the emission of the record until it was acknowledged
+     */
+    default void onAcknowledge(TopicPartition partition, long delayNanos) {
+    }
+
+    /**
+     * Current state of a receiver.
+     */
+    interface Gauges {
+
+        /**
+         * Returns the number of records requested by subscribers that have not been emitted,
+         * or {@link Long#MAX_VALUE} if demand is unbounded.
+         * @return outstanding demand of the receiver
+         */
+        long requestsPending();
+
+        /**
+         * Returns the number of events waiting to be executed on the thread used for consumer operations.
+         * @return number of queued events
+         */
+        int eventQueueDepth();
+
+        /**
+         * Returns the number of consecutive retriable commit failures since the last successful commit.
+         * @return number of consecutive commit failures
+         */
+        int consecutiveCommitFailures();
+
+        /**
+         * Returns the timeout of the next poll, which changes after every poll if adaptive poll
+         * timeouts are enabled using {@link ReceiverOptions#minPollTimeout(Duration)}.
+         * @return current poll timeout
+         */
+        Duration pollTimeout();
+    }
+}
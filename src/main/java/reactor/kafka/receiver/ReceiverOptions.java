@@ -1,20 +1,25 @@
 package reactor.kafka.receiver;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 import reactor.core.scheduler.Scheduler;
 import reactor.util.annotation.NonNull;
@@ -219,6 +224,314 @@ public interface ReceiverOptions<K, V> {
     @NonNull
     ReceiverOptions<K, V> maxCommitAttempts(int maxAttempts);
 
+    /**
+     * Configures the maximum number of records per partition that may be dispatched by the
+     * receiver without being acknowledged. When a partition reaches this limit, only that
+     * partition is paused and records continue to be fetched from other partitions as long as
+     * there is demand. The partition is resumed when acknowledgements bring the number of
+     * unacknowledged records below this limit. The number of unacknowledged records is computed
+     * from the offset of the last dispatched record and the last acknowledged offset of the partition.
+     * <p>
+     * If <code>maxInFlight</code> is zero (default), all partitions are paused or resumed together
+     * based on the total outstanding demand. The limit is applied to {@link KafkaReceiver#receive()}
+     * and {@link KafkaReceiver#receiveAutoAck()}.
+     * @return options instance with new per-partition in-flight limit
+     */
+    @NonNull
+    ReceiverOptions<K, V> maxInFlightPerPartition(int maxInFlight);
+
+    /**
+     * Enables out-of-order acknowledgement of records by configuring the maximum number of
+     * acknowledgements per partition that may be deferred. When enabled, records returned by
+     * {@link KafkaReceiver#receive()} and {@link KafkaReceiver#receivePartitioned()} may be acknowledged
+     * in any order and the offset of a record is committed only after all the records before it in the
+     * same partition have also been acknowledged. Each record must be acknowledged individually in this mode.
+     * A partition is paused if the number of acknowledgements waiting for earlier records of the partition
+     * reaches <code>maxDeferred</code> and resumed when the gap is filled.
+     * <p>
+     * If <code>maxDeferred</code> is zero (default), acknowledging a record acknowledges all the
+     * previous records of the same partition. Records returned by {@link KafkaReceiver#receiveMulticast(int)}
+     * are always committed in order; the number of deferred acknowledgements of multicast receivers is limited
+     * to twice the number of records prefetched by each subscriber in this case.
+     * @return options instance with new maximum number of deferred commits per partition
+     */
+    @NonNull
+    ReceiverOptions<K, V> maxDeferredCommits(int maxDeferred);
+
+    /**
+     * Enables adaptive poll timeouts by configuring the shortest timeout used for
+     * {@link KafkaConsumer#poll(Duration)}. The timeout of each poll is then chosen between
+     * <code>timeout</code> and {@link #pollTimeout()} based on the outcome of previous polls.
+     * Timeouts are halved towards the minimum while records are returned and there is downstream
+     * demand or commits in progress, so that commits and operations invoked using
+     * {@link KafkaReceiver#doOnConsumer(java.util.function.Function)} are not delayed. Timeouts are
+     * doubled towards {@link #pollTimeout()} while polls return no records or all partitions are paused
+     * because downstream is saturated, reducing the number of empty polls. The timeout currently chosen
+     * is reported by {@link ReceiverMetrics.Gauges#pollTimeout()}.
+     * <p>
+     * If <code>timeout</code> is null (default), every poll uses {@link #pollTimeout()}.
+     * @return options instance with new minimum poll timeout
+     */
+    @NonNull
+    ReceiverOptions<K, V> minPollTimeout(@Nullable Duration timeout);
+
+    /**
+     * Configures the maximum total serialized size in bytes of keys and values of records that have been
+     * dispatched by the receiver but not yet acknowledged. When the limit is reached, all assigned partitions
+     * are paused until acknowledgements bring the total below the limit, so that heap usage is bounded
+     * regardless of the size of individual records. At least one record is always dispatched, even if it is
+     * larger than the limit. This limit applies to {@link KafkaReceiver#receive()},
+     * {@link KafkaReceiver#receivePartitioned()}, {@link KafkaReceiver#receiveBatch()} and
+     * {@link KafkaReceiver#receiveAutoAck()}.
+     * <p>
+     * If <code>maxBytes</code> is zero (default), the number of bytes in flight is not limited.
+     * @return options instance with new maximum number of buffered bytes
+     */
+    @NonNull
+    ReceiverOptions<K, V> maxBufferedBytes(long maxBytes);
+
+    /**
+     * Configures the number of worker threads used to deserialize records. When enabled, the
+     * {@link KafkaConsumer} polls keys and values as byte arrays and records are deserialized using
+     * {@link #keyDeserializer()} and {@link #valueDeserializer()} or the deserializers configured in
+     * {@link #consumerProperties()} on a pool of <code>parallelism</code> threads, so that expensive
+     * deserialization does not delay polls. Records of different partitions are deserialized concurrently.
+     * Records are emitted in the order in which they were polled, so the order of records within each
+     * partition is preserved. Deserializers must be thread-safe when this is enabled.
+     * <p>
+     * If <code>parallelism</code> is zero (default), records are deserialized by the {@link KafkaConsumer}
+     * during poll.
+     * @return options instance with new deserialization parallelism
+     */
+    @NonNull
+    ReceiverOptions<K, V> deserializationParallelism(int parallelism);
+
+    /**
+     * Enables lazy deserialization of keys and values. When enabled, the {@link KafkaConsumer} polls keys
+     * and values as byte arrays and the key and value of each record are deserialized using {@link #keyDeserializer()}
+     * and {@link #valueDeserializer()} or the deserializers configured in {@link #consumerProperties()}
+     * when {@link ReceiverRecord#key()} or {@link ReceiverRecord#value()} is first invoked. Deserialized keys and
+     * values are cached in the record. Records that are discarded without accessing the key or value, for example
+     * after filtering on headers, are never deserialized. Deserialization errors are thrown as
+     * {@link org.apache.kafka.common.errors.SerializationException} from {@link ReceiverRecord#key()} or
+     * {@link ReceiverRecord#value()} and deserializers must be thread-safe when this is enabled.
+     * When lazy deserialization is enabled, {@link #deserializationParallelism()} is ignored.
+     * @return options instance with lazy deserialization enabled or disabled
+     */
+    @NonNull
+    ReceiverOptions<K, V> lazyDeserialization(boolean lazy);
+
+    /**
+     * Configures the number of Kafka consumers used by each receiver. Each consumer is a member of
+     * the consumer group of this receiver with its own poll thread and publishing thread, so that a
+     * single receiver can consume partitions in parallel on <code>concurrency</code> cores. Records from
+     * all consumers are merged into the Flux returned by the receiver. Each consumer commits the offsets of
+     * the partitions assigned to it, commits are not coordinated across consumers. Assign and revoke listeners
+     * are invoked with the partitions assigned to or revoked from each consumer. The number of consumers that
+     * are assigned partitions is limited by the number of partitions of the subscribed topics. Concurrency may
+     * only be used with group management using {@link #subscription(Collection)} or {@link #subscription(Pattern)}.
+     * {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)} and
+     * {@link KafkaReceiver#doOnConsumer(java.util.function.Function)} are not supported with concurrency
+     * greater than one.
+     * <p>
+     * Default concurrency is one.
+     * @return options instance with new concurrency
+     */
+    @NonNull
+    ReceiverOptions<K, V> concurrency(int concurrency);
+
+    /**
+     * Enables transactions spanning multiple polls in {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)}
+     * by configuring the number of records after which a transaction is closed. Records of successive polls
+     * are delivered on the same inner Flux until the transaction contains at least <code>maxRecords</code> records
+     * or another configured transaction bound is reached. The offsets of all the records of the inner Flux are
+     * sent within its transaction when the Flux completes. Bounds that are not configured do not limit
+     * the size of transactions, {@link #transactionMaxDuration(Duration)} should be configured to close
+     * transactions if records are not consumed continuously.
+     * <p>
+     * If <code>maxRecords</code> is zero (default), the number of records in a transaction is not limited. If
+     * no transaction bound is configured, one transaction is used for each poll.
+     * @return options instance with new maximum number of records per transaction
+     */
+    @NonNull
+    ReceiverOptions<K, V> transactionMaxRecords(int maxRecords);
+
+    /**
+     * Enables transactions spanning multiple polls in {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)}
+     * by configuring the total serialized size in bytes of keys and values of records after which a transaction
+     * is closed. See {@link #transactionMaxRecords(int)} for details.
+     * <p>
+     * If <code>maxBytes</code> is zero (default), the size of records in a transaction is not limited.
+     * @return options instance with new maximum number of bytes per transaction
+     */
+    @NonNull
+    ReceiverOptions<K, V> transactionMaxBytes(long maxBytes);
+
+    /**
+     * Enables transactions spanning multiple polls in {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)}
+     * by configuring the time after the first record of a transaction is polled when the transaction is
+     * closed, even if no more records are polled. See {@link #transactionMaxRecords(int)} for details.
+     * <p>
+     * If <code>maxDuration</code> is null (default), the duration of transactions is not limited.
+     * @return options instance with new maximum duration of transactions
+     */
+    @NonNull
+    ReceiverOptions<K, V> transactionMaxDuration(@Nullable Duration maxDuration);
+
+    /**
+     * Configures the number of polled batches of records that may be prefetched while the previous
+     * transaction of {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)} is in
+     * progress. Prefetched records are buffered and released to the application only after the next
+     * transaction has begun, so that fetch latency is overlapped with the latency of transaction commits.
+     * <p>
+     * If <code>maxBatches</code> is zero (default), polling is suspended from the start of each transaction
+     * until its offsets have been sent.
+     * @return options instance with new maximum number of batches prefetched during transactions
+     */
+    @NonNull
+    ReceiverOptions<K, V> transactionPrefetch(int maxBatches);
+
+    /**
+     * Enables delayed delivery of records by configuring a function that returns the time at which
+     * a record may be delivered, typically obtained from the headers of the record. When a polled record is not
+     * yet due, the record and subsequent records of its partition are not delivered. The consumer seeks the
+     * partition back to the record and pauses the partition until the due time, without affecting the delivery of
+     * records from other partitions. Records of each partition are expected to be polled in the order of their due
+     * times. The function may return null for records that may be delivered immediately. The function is invoked on
+     * the polling thread before records are deserialized if {@link #deserializationParallelism(int)} is configured,
+     * so it should only access the headers, timestamp and metadata of records.
+     * <p>
+     * If <code>dueTime</code> is null (default), records are delivered as soon as they are polled.
+     * @return options instance with new record due time function
+     * @see RetryTopics
+     */
+    @NonNull
+    ReceiverOptions<K, V> recordDueTime(@Nullable Function<ConsumerRecord<?, ?>, Instant> dueTime);
+
+    /**
+     * Configures the priorities of subscribed or assigned topics. Topics that are not included in
+     * <code>priorities</code> have priority zero. While a partition of a topic lags by more than
+     * {@link #topicPriorityMaxLag(long)} records, partitions of topics with lower priority are paused,
+     * so that records of latency-critical topics do not queue behind records of bulk topics.
+     * Priorities are applied only when downstream demand is bounded, lower priority partitions may not be consumed
+     * while higher priority topics have a continuous backlog.
+     * <p>
+     * If <code>priorities</code> is empty (default), all partitions are polled together.
+     * @return options instance with new topic priorities
+     */
+    @NonNull
+    ReceiverOptions<K, V> topicPriorities(Map<String, Integer> priorities);
+
+    /**
+     * Configures the consumer lag above which a topic configured using {@link #topicPriorities(Map)} is considered
+     * to have a backlog. Lag is the number of records between the position of a partition and its end offset, as
+     * reported by the <code>records-lag</code> metric of the consumer after each fetch. Partitions of lower priority
+     * topics are paused only while a partition of a higher priority topic lags by more than <code>maxLag</code>
+     * records, so that a steady trickle of high priority records that are consumed as they arrive does not
+     * starve lower priority topics.
+     * <p>
+     * Default lag threshold is zero.
+     * @return options instance with new topic priority lag threshold
+     */
+    @NonNull
+    ReceiverOptions<K, V> topicPriorityMaxLag(long maxLag);
+
+    /**
+     * Configures a filter that is applied to records on the polling thread before they are delivered.
+     * Records that don't match the filter are not delivered and are acknowledged implicitly, so that committed
+     * offsets advance past filtered records once the records delivered before them have been acknowledged. The
+     * filter is applied to deserialized records, {@link #deserializationParallelism(int)} is ignored if a
+     * record filter is configured. {@link #headerFilter(Predicate)} may be used instead to filter records
+     * before they are deserialized.
+     * <p>
+     * If <code>filter</code> is null (default), all records are delivered.
+     * @return options instance with new record filter
+     */
+    @NonNull
+    ReceiverOptions<K, V> recordFilter(@Nullable Predicate<ConsumerRecord<K, V>> filter);
+
+    /**
+     * Configures a filter that is applied to the headers of records on the polling thread before
+     * records are deserialized. Records whose headers don't match the filter are neither deserialized nor
+     * delivered and are acknowledged implicitly, so that committed offsets advance past filtered records once
+     * the records delivered before them have been acknowledged. Header filters may be combined with
+     * {@link #deserializationParallelism(int)} and {@link #lazyDeserialization(boolean)}.
+     * <p>
+     * If <code>filter</code> is null (default), records are not filtered by headers.
+     * @return options instance with new header filter
+     */
+    @NonNull
+    ReceiverOptions<K, V> headerFilter(@Nullable Predicate<Headers> filter);
+
+    /**
+     * Configures the store used to commit offsets instead of committing them to Kafka. Offsets
+     * acknowledged or committed using {@link ReceiverOffset} are stored on the thread used for consumer
+     * operations when commits are performed according to {@link #commitInterval(Duration)} and {@link #commitBatchSize(int)},
+     * and partitions with stored offsets are positioned at those offsets when they are assigned, before
+     * assign listeners are invoked. Offset stores are intended for receivers that manage partitions
+     * using {@link #assignment(Collection)}. Offsets may also be committed to Kafka periodically
+     * using {@link #offsetStoreMirrorInterval(Duration)}.
+     * <p>
+     * If <code>offsetStore</code> is null (default), offsets are committed to Kafka.
+     * @return options instance with new offset store
+     * @see MappedFileOffsetStore
+     */
+    @NonNull
+    ReceiverOptions<K, V> offsetStore(@Nullable OffsetStore offsetStore);
+
+    /**
+     * Configures the interval at which offsets committed to the {@link #offsetStore(OffsetStore)}
+     * are also committed to Kafka, for example to monitor consumer lag using Kafka tools. Offsets are
+     * committed to Kafka asynchronously at most once per interval when offsets are stored and failures to
+     * commit offsets to Kafka are logged and ignored.
+     * <p>
+     * If <code>mirrorInterval</code> is null (default), offsets committed to the offset store are not committed to Kafka.
+     * @return options instance with new offset store mirror interval
+     */
+    @NonNull
+    ReceiverOptions<K, V> offsetStoreMirrorInterval(@Nullable Duration mirrorInterval);
+
+    /**
+     * Configures the time from which records of assigned partitions are consumed. When partitions are
+     * first assigned to the receiver, the offsets of the earliest records with timestamps at or after <code>startTime</code>
+     * are looked up for all newly assigned partitions using a single {@link KafkaConsumer#offsetsForTimes(Map)} request and
+     * the partitions are positioned at these offsets before records are fetched, overriding committed offsets. Partitions without
+     * records at or after <code>startTime</code> are positioned at their end. Partitions configured using {@link #startOffsets(Map)}
+     * are positioned at the configured offsets instead. Partitions reassigned to the receiver after a rebalance
+     * resume from their committed offsets.
+     * <p>
+     * If <code>startTime</code> is null (default), partitions are positioned at their committed offsets.
+     * @return options instance with new start time
+     */
+    @NonNull
+    ReceiverOptions<K, V> startFrom(@Nullable Instant startTime);
+
+    /**
+     * Configures the offsets from which records of partitions are consumed. When one of the partitions
+     * is first assigned to the receiver, it is positioned at the configured offset before records are fetched,
+     * overriding committed offsets and {@link #startFrom(Instant)}. Partitions reassigned to the receiver after a
+     * rebalance resume from their committed offsets.
+     * <p>
+     * If <code>offsets</code> is empty (default), partitions are positioned at their committed offsets
+     * or using {@link #startFrom(Instant)}.
+     * @return options instance with new start offsets
+     */
+    @NonNull
+    ReceiverOptions<K, V> startOffsets(Map<TopicPartition, Long> offsets);
+
+    /**
+     * Configures the listener for metrics of the receiver, which reports poll latency, records per poll,
+     * time for which partitions are paused, commit latency and failures, the delay from emission to acknowledgement
+     * of records and gauges for outstanding demand, queued events and consecutive commit failures.
+     * Metrics are measured only if a listener is configured.
+     * <p>
+     * If <code>metrics</code> is null (default), receiver metrics are not reported.
+     * @return options instance with new metrics listener
+     * @see MicrometerReceiverMetrics
+     */
+    @NonNull
+    ReceiverOptions<K, V> metrics(@Nullable ReceiverMetrics metrics);
+
     /**
      * Configures the Supplier for a Scheduler on which Records will be published
      * @return options instance with updated publishing Scheduler Supplier
@@ -355,6 +668,172 @@ public interface ReceiverOptions<K, V> {
     @NonNull
     int maxCommitAttempts();
 
+    /**
+     * Returns the maximum number of records per partition that may be dispatched without
+     * being acknowledged before the partition is paused. Per-partition flow control is
+     * disabled if this is zero.
+     * @return maximum number of unacknowledged records per partition
+     */
+    @NonNull
+    int maxInFlightPerPartition();
+
+    /**
+     * Returns the maximum number of out-of-order acknowledgements per partition that may be deferred
+     * until earlier records are acknowledged. Out-of-order acknowledgement is disabled if this is zero.
+     * @return maximum number of deferred commits per partition
+     */
+    @NonNull
+    int maxDeferredCommits();
+
+    /**
+     * Returns the shortest poll timeout used when adaptive poll timeouts are enabled.
+     * Adaptive poll timeouts are disabled if this is null.
+     * @return minimum poll timeout
+     */
+    @Nullable
+    Duration minPollTimeout();
+
+    /**
+     * Returns the maximum total serialized size of records that may be dispatched without being acknowledged.
+     * The size of records in flight is not limited if this is zero.
+     * @return maximum number of buffered bytes
+     */
+    @NonNull
+    long maxBufferedBytes();
+
+    /**
+     * Returns the number of worker threads used to deserialize records. Records are deserialized
+     * by the {@link KafkaConsumer} if this is zero.
+     * @return deserialization parallelism
+     */
+    @NonNull
+    int deserializationParallelism();
+
+    /**
+     * Returns true if keys and values of records are deserialized on first access.
+     * @return true if lazy deserialization is enabled
+     */
+    @NonNull
+    boolean lazyDeserialization();
+
+    /**
+     * Returns the number of Kafka consumers used by each receiver.
+     * @return number of consumers of the receiver
+     */
+    @NonNull
+    int concurrency();
+
+    /**
+     * Returns the number of records after which a transaction of {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)}
+     * is closed. The number of records in a transaction is not limited if this is zero.
+     * @return maximum number of records per transaction
+     */
+    @NonNull
+    int transactionMaxRecords();
+
+    /**
+     * Returns the total serialized size of records after which a transaction of
+     * {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)} is closed.
+     * The size of records in a transaction is not limited if this is zero.
+     * @return maximum number of bytes per transaction
+     */
+    @NonNull
+    long transactionMaxBytes();
+
+    /**
+     * Returns the time after the first record of a transaction of
+     * {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)} is polled
+     * when the transaction is closed. The duration of transactions is not limited if this is null.
+     * @return maximum duration of transactions
+     */
+    @Nullable
+    Duration transactionMaxDuration();
+
+    /**
+     * Returns the number of polled batches of records that may be prefetched while a transaction of
+     * {@link KafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)} is in progress.
+     * Records are not prefetched if this is zero.
+     * @return maximum number of batches prefetched during transactions
+     */
+    @NonNull
+    int transactionPrefetch();
+
+    /**
+     * Returns the function that returns the time at which a record may be delivered. Records are delivered
+     * as soon as they are polled if this is null.
+     * @return record due time function
+     */
+    @Nullable
+    Function<ConsumerRecord<?, ?>, Instant> recordDueTime();
+
+    /**
+     * Returns the priorities of topics, topics that are not included have priority zero.
+     * @return topic priorities
+     */
+    @NonNull
+    Map<String, Integer> topicPriorities();
+
+    /**
+     * Returns the consumer lag above which a prioritized topic is considered to have a backlog.
+     * @return topic priority lag threshold
+     */
+    @NonNull
+    long topicPriorityMaxLag();
+
+    /**
+     * Returns the filter applied to records before they are delivered. All records are delivered
+     * if this is null.
+     * @return record filter
+     */
+    @Nullable
+    Predicate<ConsumerRecord<K, V>> recordFilter();
+
+    /**
+     * Returns the filter applied to the headers of records before they are deserialized. Records
+     * are not filtered by headers if this is null.
+     * @return header filter
+     */
+    @Nullable
+    Predicate<Headers> headerFilter();
+
+    /**
+     * Returns the store used to commit offsets instead of committing them to Kafka. Offsets
+     * are committed to Kafka if this is null.
+     * @return offset store
+     */
+    @Nullable
+    OffsetStore offsetStore();
+
+    /**
+     * Returns the interval at which offsets committed to the offset store are also committed to Kafka.
+     * Offsets are not committed to Kafka if this is null.
+     * @return offset store mirror interval
+     */
+    @Nullable
+    Duration offsetStoreMirrorInterval();
+
+    /**
+     * Returns the time from which records of assigned partitions are consumed. Partitions are
+     * positioned at their committed offsets if this is null.
+     * @return start time
+     */
+    @Nullable
+    Instant startFrom();
+
+    /**
+     * Returns the offsets from which records of partitions are consumed when the partitions are first assigned.
+     * @return start offsets of partitions
+     */
+    @NonNull
+    Map<TopicPartition, Long> startOffsets();
+
+    /**
+     * Returns the listener for metrics of the receiver. Metrics are not reported if this is null.
+     * @return metrics listener
+     */
+    @Nullable
+    ReceiverMetrics metrics();
+
     /**
      * Returns the Supplier for a Scheduler that Records will be published on
      * @return Scheduler Supplier to use for publishing
@@ -53,4 +53,17 @@ public interface ReceiverPartition {
      * @return current offset of this partition
      */
     long position();
+
+    /**
+     * Pauses fetching of records from this partition until the partition is resumed using
+     * {@link #resume()}. The partition remains paused by the receiver even if there is demand
+     * for records. Records of the partition that have already been fetched may still be delivered.
+     */
+    void pause();
+
+    /**
+     * Resumes fetching of records from this partition if it was paused using {@link #pause()}.
+     * The partition may still be paused by the receiver if there is no demand for its records.
+     */
+    void resume();
 }
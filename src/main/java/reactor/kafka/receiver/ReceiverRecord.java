@@ -43,6 +43,27 @@ public class ReceiverRecord<K, V> extends ConsumerRecord<K, V> {
         this.receiverOffset = receiverOffset;
     }
 
+    /**
+     * Creates a record with the metadata of <code>consumerRecord</code> and the specified key and value.
+     * Subclasses may pass null key and value and override {@link #key()} and {@link #value()} to
+     * obtain them on demand.
+     */
+    @SuppressWarnings("deprecation")
+    protected ReceiverRecord(ConsumerRecord<?, ?> consumerRecord, K key, V value, ReceiverOffset receiverOffset) {
+        super(consumerRecord.topic(),
+                consumerRecord.partition(),
+                consumerRecord.offset(),
+                consumerRecord.timestamp(),
+                consumerRecord.timestampType(),
+                consumerRecord.checksum(),
+                consumerRecord.serializedKeySize(),
+                consumerRecord.serializedValueSize(),
+                key,
+                value,
+                consumerRecord.headers());
+        this.receiverOffset = receiverOffset;
+    }
+
     /**
      * Returns an acknowledgeable offset instance that should be acknowledged after this
      * record has been consumed. Acknowledged records are automatically committed
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents a batch of incoming records returned by one poll and dispatched by
+ * {@link KafkaReceiver#receiveBatch()}. The batch is acknowledged or committed as
+ * a whole after all its records have been processed.
+ *
+ * @param <K> Incoming record key type
+ * @param <V> Incoming record value type
+ */
+public abstract class ReceiverRecords<K, V> extends ConsumerRecords<K, V> {
+
+    protected ReceiverRecords(ConsumerRecords<K, V> consumerRecords) {
+        super(recordsByPartition(consumerRecords));
+    }
+
+    /**
+     * Acknowledges all the records in this batch. The offset of the last record of each partition
+     * in the batch will be committed automatically based on the commit configuration parameters
+     * {@link ReceiverOptions#commitInterval()} and {@link ReceiverOptions#commitBatchSize()}.
+     * Each partition of the batch is counted once towards the commit batch size.
+     * All acknowledged offsets are committed if possible when the receiver {@link Flux} terminates.
+     */
+    public abstract void acknowledge();
+
+    /**
+     * Acknowledges all the records in this batch and commits all acknowledged offsets.
+     * <p>
+     * This method commits asynchronously. {@link Mono#block()} may be invoked on the returned Mono to
+     * wait for completion of the commit. If commit fails with {@link RetriableCommitFailedException}
+     * the commit operation is retried {@link ReceiverOptions#maxCommitAttempts()} times before the
+     * returned Mono is failed.
+     * @return Mono that completes when commit operation completes.
+     */
+    public abstract Mono<Void> commit();
+
+    private static <K, V> Map<TopicPartition, List<ConsumerRecord<K, V>>> recordsByPartition(ConsumerRecords<K, V> consumerRecords) {
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new HashMap<>();
+        for (TopicPartition partition : consumerRecords.partitions())
+            records.put(partition, consumerRecords.records(partition));
+        return records;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+
+/**
+ * Non-blocking retries of records whose processing failed using tiered retry topics. Instead
+ * of blocking the partition of a failed record while it is retried, the record is sent to the
+ * retry topic of its next attempt with the time at which it should be retried in its headers,
+ * so that records of the main topic continue to be processed. Records that have exhausted all
+ * retry attempts are sent to a dead letter topic.
+ * <p>
+ * Retry topics are consumed by a separate receiver created with {@link #retryReceiverOptions(ReceiverOptions)},
+ * which pauses each retry partition until its next record is due using {@link ReceiverOptions#recordDueTime(java.util.function.Function)}.
+ * Since all records of a retry topic have the same delay, records of each retry partition become due
+ * in the order in which they were sent. Failed records are sent to the partition with the same number
+ * as their source partition, retry topics and the dead letter topic must have at least as many partitions
+ * as the main topic.
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * RetryTopics<Integer, String> retryTopics = RetryTopics.create(sender, "orders", Duration.ofSeconds(1), Duration.ofMinutes(1));
+ * Function<ReceiverRecord<Integer, String>, Mono<Void>> processOrRetry = r ->
+ *     process(r).onErrorResume(e -> retryTopics.retry(r, e))
+ *               .doOnSuccess(v -> r.receiverOffset().acknowledge());
+ * KafkaReceiver.create(options.subscription(Collections.singleton("orders"))).receive().concatMap(processOrRetry);
+ * KafkaReceiver.create(retryTopics.retryReceiverOptions(options)).receive().concatMap(processOrRetry);
+ * }
+ * </pre>
+ *
+ * @param <K> record key type
+ * @param <V> record value type
+ */
+public class RetryTopics<K, V> {
+
+    /** Header containing the retry attempt of a record as a four byte integer */
+    public static final String ATTEMPT_HEADER = "reactor.kafka.retry.attempt";
+    /** Header containing the time in epoch milliseconds at which a record is due to be retried as an eight byte long */
+    public static final String DUE_TIME_HEADER = "reactor.kafka.retry.due";
+    /** Header containing the main topic of a record being retried */
+    public static final String SOURCE_TOPIC_HEADER = "reactor.kafka.retry.topic";
+    /** Header containing the error of the last failed attempt to process a record */
+    public static final String EXCEPTION_HEADER = "reactor.kafka.retry.exception";
+
+    private static final List<String> RETRY_HEADERS = Arrays.asList(ATTEMPT_HEADER, DUE_TIME_HEADER, SOURCE_TOPIC_HEADER, EXCEPTION_HEADER);
+
+    private final KafkaSender<K, V> sender;
+    private final String topic;
+    private final List<Duration> delays;
+
+    RetryTopics(KafkaSender<K, V> sender, String topic, List<Duration> delays) {
+        this.sender = sender;
+        this.topic = topic;
+        this.delays = delays;
+    }
+
+    /**
+     * Creates retry topics for records of <code>topic</code> with one retry topic
+     * for each of the specified delays. Retry topics are named <code>topic-retry-attempt</code>
+     * and the dead letter topic is named <code>topic-dlt</code>.
+     *
+     * @param sender Sender used to send failed records to retry topics
+     * @param topic Main topic whose records are retried
+     * @param delays Delays before each retry attempt
+     * @return new retry topics instance
+     */
+    public static <K, V> RetryTopics<K, V> create(KafkaSender<K, V> sender, String topic, Duration... delays) {
+        for (Duration delay : delays) {
+            if (delay.isNegative())
+                throw new IllegalArgumentException("Retry delay must be >= 0");
+        }
+        return new RetryTopics<>(sender, topic, Collections.unmodifiableList(new ArrayList<>(Arrays.asList(delays))));
+    }
+
+    /**
+     * Returns the names of the retry topics in the order of retry attempts.
+     * @return retry topic names
+     */
+    public List<String> retryTopics() {
+        List<String> topics = new ArrayList<>(delays.size());
+        for (int i = 1; i <= delays.size(); i++)
+            topics.add(retryTopic(i));
+        return topics;
+    }
+
+    /**
+     * Returns the name of the topic to which records are sent after all retry attempts have failed.
+     * @return dead letter topic name
+     */
+    public String deadLetterTopic() {
+        return topic + "-dlt";
+    }
+
+    /**
+     * Returns the receiver options for consuming the retry topics, created from <code>options</code>
+     * by subscribing to all retry topics and delaying delivery of records until they are due.
+     * @param options Receiver options of the main topic
+     * @return receiver options for retry topics
+     */
+    public ReceiverOptions<K, V> retryReceiverOptions(ReceiverOptions<K, V> options) {
+        return options.subscription(retryTopics())
+                      .recordDueTime(RetryTopics::dueTime);
+    }
+
+    /**
+     * Sends <code>record</code> whose processing failed with <code>error</code> to the retry topic
+     * of its next attempt, or to the dead letter topic if all retry attempts have failed. Headers
+     * of the record are retained.
+     *
+     * @param record Record whose processing failed, from the main topic or one of the retry topics
+     * @param error Error from the last attempt to process the record
+     * @return Mono that completes when the record has been sent
+     */
+    public Mono<Void> retry(ConsumerRecord<K, V> record, Throwable error) {
+        int attempt = attempt(record) + 1;
+        Headers headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!RETRY_HEADERS.contains(header.key()))
+                headers.add(header);
+        }
+        String retryTopic;
+        headers.add(SOURCE_TOPIC_HEADER, topic.getBytes(StandardCharsets.UTF_8));
+        headers.add(ATTEMPT_HEADER, ByteBuffer.allocate(4).putInt(attempt).array());
+        if (attempt <= delays.size()) {
+            retryTopic = retryTopic(attempt);
+            long dueTime = System.currentTimeMillis() + delays.get(attempt - 1).toMillis();
+            headers.add(DUE_TIME_HEADER, ByteBuffer.allocate(8).putLong(dueTime).array());
+        } else
+            retryTopic = deadLetterTopic();
+        if (error != null)
+            headers.add(EXCEPTION_HEADER, String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+        ProducerRecord<K, V> retryRecord = new ProducerRecord<>(retryTopic, record.partition(), record.key(), record.value(), headers);
+        return sender.send(Mono.just(SenderRecord.create(retryRecord, null))).then();
+    }
+
+    /**
+     * Returns the retry attempt of a record, which is zero for records of the main topic.
+     * @param record Record from the main topic or one of the retry topics
+     * @return retry attempt of the record
+     */
+    public static int attempt(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ATTEMPT_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    /**
+     * Returns the time at which a record from a retry topic is due to be retried.
+     * @param record Record from a retry topic
+     * @return due time of the record or null if the record does not have a due time
+     */
+    public static Instant dueTime(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_TIME_HEADER);
+        return header == null ? null : Instant.ofEpochMilli(ByteBuffer.wrap(header.value()).getLong());
+    }
+
+    private String retryTopic(int attempt) {
+        return topic + "-retry-" + attempt;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+
+/**
+ * Poll timeout chosen between a minimum and maximum based on the outcome of previous polls.
+ * The timeout is halved after polls that returned records while there was downstream demand
+ * and doubled after polls that returned no records or were performed without demand. The
+ * timeout is updated on the event thread and the current timeout may be read from any thread.
+ */
+class AdaptivePollTimeout {
+
+    private final long minNanos;
+    private final long maxNanos;
+    private long currentNanos;
+    private volatile Duration current;
+
+    AdaptivePollTimeout(Duration minTimeout, Duration maxTimeout) {
+        this.maxNanos = maxTimeout.toNanos();
+        this.minNanos = Math.min(minTimeout.toNanos(), maxNanos);
+        this.currentNanos = minNanos;
+        this.current = Duration.ofNanos(currentNanos);
+    }
+
+    /**
+     * Returns the timeout to use for the next poll.
+     */
+    Duration current() {
+        return current;
+    }
+
+    /**
+     * Updates the timeout after a poll.
+     * @param recordCount number of records returned by the poll
+     * @param hasDemand true if there was downstream demand when the poll was performed
+     * @param commitsInProgress true if there are commits awaiting completion
+     * @return true if the timeout was changed
+     */
+    boolean onPoll(int recordCount, boolean hasDemand, boolean commitsInProgress) {
+        long nanos;
+        if (commitsInProgress || (recordCount > 0 && hasDemand))
+            nanos = Math.max(minNanos, currentNanos / 2);
+        else
+            nanos = Math.min(maxNanos, Math.max(currentNanos, 1000000L) * 2);
+        if (nanos == currentNanos)
+            return false;
+        currentNanos = nanos;
+        current = Duration.ofNanos(nanos);
+        return true;
+    }
+}
@@ -16,88 +16,162 @@
 package reactor.kafka.receiver.internals;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 
 import reactor.core.publisher.MonoSink;
 
+/**
+ * Offsets acknowledged for each partition that have not yet been committed. Offsets
+ * may be updated concurrently from any number of threads without locking. Each partition
+ * has a slot containing the highest acknowledged offset and the offset that was last taken
+ * for commit, so that a commit takes a snapshot of all slots whose acknowledged offset has
+ * advanced. {@link #getAndClearOffsets()} and {@link #restoreOffsets(CommitArgs, boolean)}
+ * are invoked from one thread at a time. The number of updates is counted using a
+ * {@link LongAdder} so that acknowledgements from different threads don't contend on a
+ * single counter.
+ */
 class CommittableBatch {
 
-    private final Map<TopicPartition, Long> consumedOffsets;
-    private final Map<TopicPartition, Long> latestOffsets;
-    private int batchSize;
-    private List<MonoSink<Void>> callbackEmitters;
+    private static final long NOT_TAKEN = Long.MIN_VALUE;
+
+    private final Map<TopicPartition, PartitionOffset> consumedOffsets;
+    private final LongAdder batchSize;
+    private final Queue<MonoSink<Void>> callbackEmitters;
 
     public CommittableBatch() {
-        consumedOffsets = new HashMap<>();
-        latestOffsets = new HashMap<>();
-        callbackEmitters = new ArrayList<>();
+        consumedOffsets = new ConcurrentHashMap<>();
+        batchSize = new LongAdder();
+        callbackEmitters = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Updates the acknowledged offset of the partition if <code>offset</code> is higher
+     * than the current acknowledged offset.
+     * @return number of offset updates since the last commit
+     */
+    public int updateOffset(TopicPartition topicPartition, long offset) {
+        if (partitionOffset(topicPartition).update(offset))
+            batchSize.increment();
+        return batchSize();
     }
 
-    public synchronized int updateOffset(TopicPartition topicPartition, long offset) {
-        if (consumedOffsets.put(topicPartition, offset) != (Long) offset)
-            batchSize++;
-        return batchSize;
+    /**
+     * Sets the acknowledged offset of the partition to <code>offset</code> even if it is lower
+     * than the current acknowledged offset and includes it in the next commit.
+     */
+    public void resetOffset(TopicPartition topicPartition, long offset) {
+        PartitionOffset partitionOffset = partitionOffset(topicPartition);
+        partitionOffset.acknowledged.set(offset);
+        partitionOffset.taken = NOT_TAKEN;
+        batchSize.increment();
     }
 
-    public synchronized void addCallbackEmitter(MonoSink<Void> emitter) {
+    /**
+     * Removes the offsets of partitions that are no longer assigned. Offsets acknowledged
+     * after the partitions are reassigned are committed even if they are lower than the
+     * offsets acknowledged during the previous assignment.
+     */
+    public void removeOffsets(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions)
+            consumedOffsets.remove(partition);
+    }
+
+    public void addCallbackEmitter(MonoSink<Void> emitter) {
         callbackEmitters.add(emitter);
     }
 
-    public synchronized boolean isEmpty() {
-        return batchSize == 0;
+    public boolean isEmpty() {
+        return batchSize.sum() == 0;
     }
 
-    public synchronized int batchSize() {
-        return batchSize;
+    public int batchSize() {
+        return (int) batchSize.sum();
     }
 
-    public synchronized CommitArgs getAndClearOffsets() {
-        Map<TopicPartition, OffsetAndMetadata> offsetMap = new HashMap<>();
-        latestOffsets.putAll(consumedOffsets);
-        Iterator<Map.Entry<TopicPartition, Long>> iterator = consumedOffsets.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<TopicPartition, Long> entry = iterator.next();
-            offsetMap.put(entry.getKey(), new OffsetAndMetadata(entry.getValue() + 1));
-            iterator.remove();
+    public CommitArgs getAndClearOffsets() {
+        // Emitters are drained before offsets are taken. An emitter is added after the offset
+        // it commits has been updated, so the offset of every drained emitter is included.
+        List<MonoSink<Void>> currentCallbackEmitters = null;
+        MonoSink<Void> emitter;
+        while ((emitter = callbackEmitters.poll()) != null) {
+            if (currentCallbackEmitters == null)
+                currentCallbackEmitters = new ArrayList<>();
+            currentCallbackEmitters.add(emitter);
         }
-        batchSize = 0;
 
-        List<MonoSink<Void>> currentCallbackEmitters;
-        if (!callbackEmitters.isEmpty()) {
-            currentCallbackEmitters = callbackEmitters;
-            callbackEmitters = new ArrayList<>();
-        } else
-            currentCallbackEmitters = null;
+        // Updates counted concurrently are retained for the next commit
+        batchSize.add(-batchSize.sum());
+        Map<TopicPartition, OffsetAndMetadata> offsetMap = new HashMap<>();
+        for (Map.Entry<TopicPartition, PartitionOffset> entry : consumedOffsets.entrySet()) {
+            PartitionOffset partitionOffset = entry.getValue();
+            long offset = partitionOffset.acknowledged.get();
+            if (offset != partitionOffset.taken) {
+                partitionOffset.taken = offset;
+                offsetMap.put(entry.getKey(), new OffsetAndMetadata(offset + 1));
+            }
+        }
 
         return new CommitArgs(offsetMap, currentCallbackEmitters);
     }
 
-    public synchronized void restoreOffsets(CommitArgs commitArgs, boolean restoreCallbackEmitters) {
-        // Restore offsets that haven't been updated.
+    public void restoreOffsets(CommitArgs commitArgs, boolean restoreCallbackEmitters) {
+        // Restore offsets that haven't been updated. Offsets acknowledged after the failed
+        // commit are higher and are included in the next commit in any case.
         for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : commitArgs.offsets.entrySet()) {
-            TopicPartition topicPart = entry.getKey();
-            long offset = entry.getValue().offset();
-            Long latestOffset = latestOffsets.get(topicPart);
-            if (latestOffset == null || latestOffset <= offset - 1)
-                consumedOffsets.putIfAbsent(topicPart, offset - 1);
+            PartitionOffset partitionOffset = consumedOffsets.get(entry.getKey());
+            if (partitionOffset != null && partitionOffset.taken == entry.getValue().offset() - 1)
+                partitionOffset.taken = NOT_TAKEN;
         }
         // If Mono is being failed after maxAttempts or due to fatal error, callback emitters
         // are not restored. Mono#retry will generate new callback emitters. If Mono status
         // is not being updated because commits are attempted again by KafkaReceiver, restore
         // the emitters for the next attempt.
         if (restoreCallbackEmitters && commitArgs.callbackEmitters != null)
-            this.callbackEmitters = commitArgs.callbackEmitters;
+            this.callbackEmitters.addAll(commitArgs.callbackEmitters);
+    }
+
+    private PartitionOffset partitionOffset(TopicPartition topicPartition) {
+        PartitionOffset partitionOffset = consumedOffsets.get(topicPartition);
+        if (partitionOffset == null)
+            partitionOffset = consumedOffsets.computeIfAbsent(topicPartition, p -> new PartitionOffset());
+        return partitionOffset;
     }
 
     @Override
-    public synchronized String toString() {
-        return String.valueOf(consumedOffsets);
+    public String toString() {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, PartitionOffset> entry : consumedOffsets.entrySet()) {
+            long offset = entry.getValue().acknowledged.get();
+            if (offset != entry.getValue().taken)
+                offsets.put(entry.getKey(), offset);
+        }
+        return String.valueOf(offsets);
+    }
+
+    private static class PartitionOffset {
+        private final AtomicLong acknowledged = new AtomicLong(NOT_TAKEN);
+        // Updated only by the thread performing commits
+        private volatile long taken = NOT_TAKEN;
+
+        boolean update(long offset) {
+            long current;
+            while ((current = acknowledged.get()) < offset) {
+                if (acknowledged.compareAndSet(current, offset))
+                    return true;
+            }
+            return false;
+        }
     }
 
     public static class CommitArgs {
@@ -115,4 +189,4 @@ class CommittableBatch {
             return callbackEmitters;
         }
     }
-}
\ No newline at end of file
+}
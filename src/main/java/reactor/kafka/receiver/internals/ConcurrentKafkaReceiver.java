@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.receiver.ReceiverRecords;
+import reactor.kafka.sender.TransactionManager;
+
+/**
+ * Receiver that consumes records using {@link ReceiverOptions#concurrency()} Kafka consumers
+ * in the same consumer group. Each consumer is managed by a {@link DefaultKafkaReceiver} with
+ * its own event and publishing threads, and the records of all consumers are merged into the
+ * Flux returned by this receiver. Each consumer commits offsets of the partitions assigned to it,
+ * commits are not coordinated across consumers. Partitions are positioned at configured start
+ * positions only the first time they are assigned to any of the consumers.
+ * <p>
+ * {@link #receiveExactlyOnce(TransactionManager)} and {@link #doOnConsumer(Function)} are not
+ * supported, since transactions and consumer operations are scoped to a single consumer.
+ */
+public class ConcurrentKafkaReceiver<K, V> implements KafkaReceiver<K, V> {
+
+    private final List<DefaultKafkaReceiver<K, V>> receivers;
+
+    public ConcurrentKafkaReceiver(ConsumerFactory consumerFactory, ReceiverOptions<K, V> receiverOptions) {
+        ReceiverOptions<K, V> options = receiverOptions.toImmutable();
+        if (options.subscriptionTopics() == null && options.subscriptionPattern() == null)
+            throw new IllegalArgumentException("Concurrency requires subscription using group management");
+        int concurrency = options.concurrency();
+        Object clientId = options.consumerProperty(ConsumerConfig.CLIENT_ID_CONFIG);
+        receivers = new ArrayList<>(concurrency);
+        Set<TopicPartition> startedPartitions = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < concurrency; i++) {
+            // Client ids must be unique within a JVM for consumer metrics to be registered
+            ReceiverOptions<K, V> consumerOptions = clientId == null ? options :
+                options.consumerProperty(ConsumerConfig.CLIENT_ID_CONFIG, clientId + "-" + i);
+            receivers.add(new DefaultKafkaReceiver<>(consumerFactory, consumerOptions, startedPartitions));
+        }
+    }
+
+    @Override
+    public Flux<ReceiverRecord<K, V>> receive() {
+        return merge(DefaultKafkaReceiver::receive);
+    }
+
+    @Override
+    public Flux<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> receivePartitioned() {
+        return merge(DefaultKafkaReceiver::receivePartitioned);
+    }
+
+    @Override
+    public Flux<ReceiverRecords<K, V>> receiveBatch() {
+        return merge(DefaultKafkaReceiver::receiveBatch);
+    }
+
+    @Override
+    public Flux<ReceiverRecord<K, V>> receiveMulticast(int subscribers) {
+        return merge(receiver -> receiver.receiveMulticast(subscribers));
+    }
+
+    @Override
+    public Flux<Flux<ConsumerRecord<K, V>>> receiveAutoAck() {
+        return merge(DefaultKafkaReceiver::receiveAutoAck);
+    }
+
+    @Override
+    public Flux<ConsumerRecord<K, V>> receiveAtmostOnce() {
+        return merge(DefaultKafkaReceiver::receiveAtmostOnce);
+    }
+
+    /**
+     * Not supported, since transactional batches of different consumers could not be prevented
+     * from interleaving in the transactions of a shared <code>transactionManager</code>.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Flux<Flux<ConsumerRecord<K, V>>> receiveExactlyOnce(TransactionManager transactionManager) {
+        throw new UnsupportedOperationException("Exactly once delivery is not supported with concurrency " + receivers.size());
+    }
+
+    /**
+     * Materializes the partitions of all consumers into a shared table, which is emitted
+     * when the partitions of every consumer have been read up to their end offsets.
+     */
+    @Override
+    public Flux<Map<K, V>> materialize() {
+        Map<K, V> table = new ConcurrentHashMap<>();
+        return merge(receiver -> receiver.materialize(table))
+                .skip(receivers.size() - 1);
+    }
+
+    /**
+     * Warms up all consumers in parallel. Each consumer is polled until partitions have been
+     * assigned to every consumer, since members must continue to poll while others join the group.
+     */
+    @Override
+    public Mono<Void> warmUp() {
+        BooleanSupplier allAssigned = () -> receivers.stream().allMatch(DefaultKafkaReceiver::warmUpAssigned);
+        return Flux.fromIterable(receivers)
+                   .flatMap(receiver -> receiver.warmUp(allAssigned))
+                   .then();
+    }
+
+    @Override
+    public Mono<Void> releaseWarmUp() {
+        return Flux.fromIterable(receivers)
+                   .flatMap(DefaultKafkaReceiver::releaseWarmUp)
+                   .then();
+    }
+
+    /**
+     * Not supported, since the result of a single consumer reflects only the partitions assigned
+     * to that consumer and partition operations fail on consumers that don't own the partition.
+     * @return Mono that fails with {@link UnsupportedOperationException}
+     */
+    @Override
+    public <T> Mono<T> doOnConsumer(Function<org.apache.kafka.clients.consumer.Consumer<K, V>, ? extends T> function) {
+        return Mono.error(new UnsupportedOperationException("Consumer operations are not supported with concurrency " + receivers.size()));
+    }
+
+    /**
+     * Pauses the partitions on all consumers, since partitions may be reassigned between consumers.
+     */
+    @Override
+    public void pause(TopicPartition... partitions) {
+        for (DefaultKafkaReceiver<K, V> receiver : receivers)
+            receiver.pause(partitions);
+    }
+
+    @Override
+    public void resume(TopicPartition... partitions) {
+        for (DefaultKafkaReceiver<K, V> receiver : receivers)
+            receiver.resume(partitions);
+    }
+
+    List<DefaultKafkaReceiver<K, V>> receivers() {
+        return receivers;
+    }
+
+    private <T> Flux<T> merge(Function<DefaultKafkaReceiver<K, V>, Flux<T>> receive) {
+        List<Flux<T>> fluxes = new ArrayList<>(receivers.size());
+        for (DefaultKafkaReceiver<K, V> receiver : receivers)
+            fluxes.add(receive.apply(receiver));
+        return Flux.merge(fluxes);
+    }
+}
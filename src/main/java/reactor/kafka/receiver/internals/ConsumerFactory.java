@@ -17,6 +17,7 @@ package reactor.kafka.receiver.internals;
 
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 
 import reactor.kafka.receiver.ReceiverOptions;
 
@@ -32,4 +33,14 @@ public class ConsumerFactory {
                                    config.keyDeserializer(),
                                    config.valueDeserializer());
     }
+
+    /**
+     * Creates a consumer that returns keys and values as byte arrays without applying the
+     * deserializers of <code>config</code>.
+     */
+    public <K, V> Consumer<byte[], byte[]> createRawConsumer(ReceiverOptions<K, V> config) {
+        return new KafkaConsumer<>(config.consumerProperties(),
+                                   new ByteArrayDeserializer(),
+                                   new ByteArrayDeserializer());
+    }
 }
@@ -19,9 +19,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +35,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -42,6 +47,7 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,23 +55,33 @@ import reactor.core.Disposable;
 import reactor.core.publisher.EmitterProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
-import reactor.core.publisher.FluxSink.OverflowStrategy;
+import reactor.core.publisher.GroupedFlux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.core.publisher.MonoSink;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.kafka.receiver.ReceiverOptions;
 import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.receiver.ReceiverRecords;
 import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.OffsetStore;
+import reactor.kafka.receiver.ReceiverMetrics;
 import reactor.kafka.receiver.ReceiverOffset;
 import reactor.kafka.receiver.ReceiverPartition;
 import reactor.kafka.receiver.internals.CommittableBatch.CommitArgs;
 import reactor.kafka.sender.TransactionManager;
+import reactor.util.concurrent.Queues;
 
 public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, ConsumerRebalanceListener {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultKafkaReceiver.class.getName());
 
+    /**
+     * Number of records prefetched by the shared Flux of a multicast receiver and by each of its subscribers.
+     */
+    private static final int MULTICAST_PREFETCH = Queues.SMALL_BUFFER_SIZE;
+
     /** Note: Methods added to this set should also be included in javadoc for {@link KafkaReceiver#doOnConsumer(Function)} */
     private static final Set<String> DELEGATE_METHODS = new HashSet<>(Arrays.asList(
         "assignment",
@@ -88,7 +104,6 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
 
     private final ConsumerFactory                                  consumerFactory;
     private final ReceiverOptions<K, V>                            receiverOptions;
-    private final List<Flux<? extends Event<?>>>                   fluxList;
     private final List<Disposable>                                 subscribeDisposables;
     private final AtomicLong                                       requestsPending;
     private final AtomicBoolean                                    needsHeartbeat;
@@ -98,32 +113,57 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
     private final AtomicBoolean                                    isActive;
     private final AtomicBoolean                                    isClosed;
     private final AtomicBoolean                                    awaitingTransaction;
+    private final AtomicInteger                                    undeliveredBatches;
+    private final Set<TopicPartition>                              applicationPausedPartitions;
+    private final Set<TopicPartition>                              startedPartitions;
+    private final ReceiverMetrics                                  metrics;
     private       AckMode                                          ackMode;
+    private       boolean                                          multicast;
     private       AtmostOnceOffsets                                atmostOnceOffsets;
-    private       EmitterProcessor<Event<?>>                       eventEmitter;
-    private       FluxSink<Event<?>>                               eventSubmission;
+    private       InFlightRecords                                  inFlightRecords;
+    private       InFlightBytes                                    inFlightBytes;
+    private       DeferredCommits                                  deferredCommits;
+    private       PartitionEpochs                                  partitionEpochs;
+    private       PartitionedRecords<K, V>                         partitionedRecords;
+    private       FilteredRecords<K, V>                            filteredRecords;
+    private       MaterializedTable<K, V>                          materializedTable;
+    private       StartPositions                                   startPositions;
+    private       Scheduler                                        publishScheduler;
+    private       RecordDeserializer<K, V>                         recordDeserializer;
+    private       ParallelDeserializer<K, V>                       parallelDeserializer;
+    private       EventLoop<Event<?>>                              eventLoop;
     private       EmitterProcessor<ConsumerRecords<K, V>>          recordEmitter;
     private       FluxSink<ConsumerRecords<K, V>>                  recordSubmission;
     private       InitEvent                                        initEvent;
     private       PollEvent                                        pollEvent;
+    private       DispatchEvent                                    dispatchEvent;
     private       CommitEvent                                      commitEvent;
-    private       Flux<Event<?>>                                   eventFlux;
     private       Flux<ConsumerRecords<K, V>>                      consumerFlux;
     private       org.apache.kafka.clients.consumer.Consumer<K, V> consumer;
     private       org.apache.kafka.clients.consumer.Consumer<K, V> consumerProxy;
+    private volatile org.apache.kafka.clients.consumer.Consumer<K, V> warmConsumer;
+    private volatile boolean                                       warmingUp;
+    private volatile boolean                                       warmUpAssigned;
 
     Scheduler scheduler;
 
     enum EventType {
-        INIT, POLL, COMMIT, CUSTOM, CLOSE
+        INIT, POLL, DISPATCH, COMMIT, CUSTOM, CLOSE
     }
 
     enum AckMode {
-        AUTO_ACK, MANUAL_ACK, ATMOST_ONCE, EXACTLY_ONCE
+        AUTO_ACK, MANUAL_ACK, BATCH_ACK, ATMOST_ONCE, EXACTLY_ONCE, MATERIALIZE
     }
 
     public DefaultKafkaReceiver(ConsumerFactory consumerFactory, ReceiverOptions<K, V> receiverOptions) {
-        fluxList = new ArrayList<>();
+        this(consumerFactory, receiverOptions, ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Creates a receiver that shares the set of partitions positioned at their configured
+     * start positions with other receivers in the same consumer group.
+     */
+    DefaultKafkaReceiver(ConsumerFactory consumerFactory, ReceiverOptions<K, V> receiverOptions, Set<TopicPartition> startedPartitions) {
         subscribeDisposables = new ArrayList<>();
         requestsPending = new AtomicLong();
         needsHeartbeat = new AtomicBoolean();
@@ -131,9 +171,13 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         isActive = new AtomicBoolean();
         isClosed = new AtomicBoolean();
         awaitingTransaction = new AtomicBoolean();
+        undeliveredBatches = new AtomicInteger();
+        applicationPausedPartitions = ConcurrentHashMap.newKeySet();
+        this.startedPartitions = startedPartitions;
 
         this.consumerFactory = consumerFactory;
         this.receiverOptions = receiverOptions.toImmutable();
+        this.metrics = this.receiverOptions.metrics();
         this.eventScheduler = KafkaSchedulers.newEvent(receiverOptions.groupId());
     }
 
@@ -141,13 +185,50 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
     public Flux<ReceiverRecord<K, V>> receive() {
         this.ackMode = AckMode.MANUAL_ACK;
         Flux<ConsumerRecord<K, V>> flux = createConsumerFlux()
-                .concatMap(Flux::fromIterable, Integer.MAX_VALUE);
+                .concatMap(records -> Flux.fromIterable(liveRecords(records)), Integer.MAX_VALUE);
         return withDoOnRequest(flux)
-            .map(r -> {
-                TopicPartition topicPartition = new TopicPartition(r.topic(), r.partition());
-                CommittableOffset committableOffset = new CommittableOffset(topicPartition, r.offset());
-                return new ReceiverRecord<>(r, committableOffset);
-            });
+            .map(this::toReceiverRecord);
+    }
+
+    @Override
+    public Flux<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> receivePartitioned() {
+        this.ackMode = AckMode.MANUAL_ACK;
+        Flux<ConsumerRecords<K, V>> flux = createConsumerFlux(true);
+        // Demand is tracked separately for each partition, the consumer is polled as long as
+        // there are partitions that are not backlogged.
+        Flux<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> errors = flux
+                .doOnRequest(r -> requestsPending.set(Long.MAX_VALUE))
+                .thenMany(Flux.empty());
+        return Flux.merge(partitionedRecords.groups(), errors);
+    }
+
+    @Override
+    public Flux<ReceiverRecords<K, V>> receiveBatch() {
+        this.ackMode = AckMode.BATCH_ACK;
+        return withDoOnRequest(createConsumerFlux())
+            .map(records -> new CommittableRecords(liveBatch(records)));
+    }
+
+    @Override
+    public Flux<ReceiverRecord<K, V>> receiveMulticast(int subscribers) {
+        if (subscribers < 1)
+            throw new IllegalArgumentException("Number of subscribers must be at least 1, got " + subscribers);
+        this.ackMode = AckMode.MANUAL_ACK;
+        this.multicast = true;
+        Flux<ConsumerRecord<K, V>> flux = createConsumerFlux()
+                .concatMap(records -> Flux.fromIterable(liveRecords(records)), Integer.MAX_VALUE);
+        // Cancellation by one subscriber completes the others and closes the shared consumer since
+        // records would otherwise never be acknowledged by all the subscribers.
+        MonoProcessor<Void> cancelled = MonoProcessor.create();
+        Flux<MulticastRecord.SharedRecord<K, V>> sharedFlux = withDoOnRequest(flux)
+                .map(record -> new MulticastRecord.SharedRecord<>(toReceiverRecord(record), subscribers))
+                .publish(MULTICAST_PREFETCH)
+                .autoConnect(subscribers, connection -> cancelled.doOnTerminate(connection::dispose).subscribe());
+        return sharedFlux
+                .publishOn(publishScheduler, MULTICAST_PREFETCH)
+                .<ReceiverRecord<K, V>>map(MulticastRecord::new)
+                .takeUntilOther(cancelled)
+                .doOnCancel(cancelled::onComplete);
     }
 
     @Override
@@ -155,6 +236,7 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         this.ackMode = AckMode.AUTO_ACK;
         Flux<ConsumerRecords<K, V>> flux = withDoOnRequest(createConsumerFlux());
         return flux
+                .map(this::liveBatch)
                 .map(consumerRecords -> Flux.fromIterable(consumerRecords)
                                             .doAfterTerminate(() -> {
                                                 for (ConsumerRecord<K, V> r : consumerRecords)
@@ -176,30 +258,95 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
                         long committedOffset = atmostOnceOffsets.committedOffset(partition);
                         atmostOnceOffsets.onDispatch(partition, offset);
                         long commitAheadSize = receiverOptions.atmostOnceCommitAheadSize();
-                        CommittableOffset committable =
-                            new CommittableOffset(partition, offset + commitAheadSize);
-                        if (offset >= committedOffset)
-                            return committable.commit()
-                                              .then(Mono.just(r))
-                                              .publishOn(scheduler);
-                        else if (committedOffset - offset >= commitAheadSize / 2)
-                            committable.commit().subscribe();
+                        // Commits are issued ahead asynchronously when half the commit-ahead offsets
+                        // have been dispatched. Records are delayed only if they overtake the last
+                        // successful commit, waiting for the pending commit if one covers the record.
+                        Mono<Void> pendingCommit = atmostOnceOffsets.pendingCommit(partition, offset);
+                        if (offset >= committedOffset) {
+                            if (pendingCommit == null)
+                                pendingCommit = commitAhead(partition, offset + commitAheadSize);
+                            return pendingCommit
+                                    .then(Mono.just(r))
+                                    .publishOn(scheduler);
+                        } else if (atmostOnceOffsets.issuedOffset(partition) - offset <= commitAheadSize / 2 + 1)
+                            commitAhead(partition, offset + commitAheadSize);
                         return Mono.just(r);
                     }, Integer.MAX_VALUE),
             Integer.MAX_VALUE)
             .transform(this::withDoOnRequest);
     }
 
+    private Mono<Void> commitAhead(TopicPartition partition, long offset) {
+        MonoProcessor<Void> commitProcessor = MonoProcessor.create();
+        atmostOnceOffsets.onCommitAhead(partition, offset + 1, commitProcessor);
+        new CommittableOffset(partition, offset).commit().subscribe(commitProcessor);
+        return commitProcessor;
+    }
+
     @Override
     public Flux<Flux<ConsumerRecord<K, V>>> receiveExactlyOnce(TransactionManager transactionManager) {
         this.ackMode = AckMode.EXACTLY_ONCE;
         Flux<ConsumerRecords<K, V>> flux = withDoOnRequest(createConsumerFlux());
+        TransactionBoundary transactionBoundary = TransactionBoundary.create(receiverOptions);
+        if (transactionBoundary != null)
+            return transactionalWindows(transactionManager, flux, transactionBoundary);
         return  flux.map(consumerRecords -> transactionManager.begin()
                                  .then(Mono.fromCallable(() -> awaitingTransaction.getAndSet(true)))
+                                 .doOnSuccess(awaiting -> undeliveredBatches.decrementAndGet())
                                  .thenMany(transactionalRecords(transactionManager, consumerRecords)))
                                  .publishOn(transactionManager.scheduler());
     }
 
+    /**
+     * Returns a Flux of transactions that may each span multiple polls. Records are delivered on the
+     * inner Flux of the current transaction as they are polled until a transaction bound is reached.
+     * Polling is suspended from then on until the offsets of the transaction have been sent.
+     */
+    private Flux<Flux<ConsumerRecord<K, V>>> transactionalWindows(TransactionManager transactionManager,
+            Flux<ConsumerRecords<K, V>> flux, TransactionBoundary transactionBoundary) {
+        Duration maxDuration = transactionBoundary.maxDuration();
+        if (maxDuration != null) {
+            // Empty batches are merged in periodically to close open transactions whose duration
+            // has elapsed even if no more records are polled. They are filtered after the merge,
+            // serially with polled batches, since a transaction that was open when the interval
+            // elapsed may have been closed by a size bound before the empty batch is merged in.
+            // An empty batch must not open a window without records.
+            Duration checkInterval = Duration.ofMillis(Math.max(1, maxDuration.toMillis() / 4));
+            flux = flux.publish(polls -> polls.mergeWith(Flux.interval(checkInterval)
+                    .onBackpressureDrop()
+                    .takeUntilOther(polls.ignoreElements())
+                    .map(i -> ConsumerRecords.<K, V>empty())))
+                    .filter(records -> !records.isEmpty() || transactionBoundary.isOpen());
+        }
+        return flux.windowUntil(records -> {
+            boolean close = transactionBoundary.onRecords(records);
+            if (close)
+                awaitingTransaction.set(true);
+            return close;
+        })
+        .map(window -> {
+            CommittableBatch offsetBatch = new CommittableBatch();
+            Flux<ConsumerRecord<K, V>> records = window
+                    .concatMapIterable(consumerRecords -> {
+                        if (!consumerRecords.isEmpty())
+                            undeliveredBatches.decrementAndGet();
+                        for (ConsumerRecord<K, V> r : consumerRecords)
+                            offsetBatch.updateOffset(new TopicPartition(r.topic(), r.partition()), r.offset());
+                        return consumerRecords;
+                    })
+                    .publishOn(transactionManager.scheduler());
+            Mono<ConsumerRecord<K, V>> sendOffsets = Mono.defer(() -> {
+                Map<TopicPartition, OffsetAndMetadata> offsets = offsetBatch.getAndClearOffsets().offsets();
+                return offsets.isEmpty() ? Mono.empty() : transactionManager.sendOffsets(offsets, receiverOptions.groupId());
+            });
+            return transactionManager.begin()
+                    .thenMany(records)
+                    .concatWith(sendOffsets)
+                    .doAfterTerminate(() -> awaitingTransaction.set(false));
+        })
+        .publishOn(transactionManager.scheduler());
+    }
+
     private Flux<ConsumerRecord<K, V>> transactionalRecords(TransactionManager transactionManager, ConsumerRecords<K, V> records) {
         if (records.isEmpty())
             return Flux.empty();
@@ -211,6 +358,91 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
                    .doAfterTerminate(() -> awaitingTransaction.set(false));
     }
 
+    @Override
+    public Flux<Map<K, V>> materialize() {
+        return materialize(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Materializes the assigned partitions into <code>table</code>, which may be shared
+     * by multiple receivers with disjoint assignments.
+     */
+    Flux<Map<K, V>> materialize(Map<K, V> table) {
+        this.ackMode = AckMode.MATERIALIZE;
+        this.materializedTable = new MaterializedTable<>(table);
+        // Records are applied to the table on the polling thread and are not dispatched to the
+        // consumer flux, which is polled continuously and only propagates errors.
+        Flux<Map<K, V>> errors = withDoOnRequest(createConsumerFlux())
+                .thenMany(Flux.empty());
+        return Flux.merge(materializedTable.ready().publishOn(scheduler), errors);
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return warmUp(() -> warmUpAssigned);
+    }
+
+    /**
+     * Creates the consumer and polls it with assigned partitions paused until <code>isAssigned</code>
+     * returns true. The consumer is used by the receiver when it is subscribed. Warm up runs on the
+     * event thread, which is not used by the receiver until it is subscribed.
+     */
+    Mono<Void> warmUp(BooleanSupplier isAssigned) {
+        return Mono.<Void>create(sink -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onCancel(() -> cancelled.set(true));
+            synchronized (this) {
+                if (isActive.get() || this.warmConsumer != null || warmingUp) {
+                    sink.error(new IllegalStateException("Receiver has already been subscribed or warmed up"));
+                    return;
+                }
+                warmingUp = true;
+            }
+            org.apache.kafka.clients.consumer.Consumer<K, V> warmConsumer = null;
+            try {
+                warmConsumer = rawConsumer() ? createRawConsumer() : consumerFactory.createConsumer(receiverOptions);
+                this.warmConsumer = warmConsumer;
+                receiverOptions.subscriber(this).accept(warmConsumer);
+                do {
+                    warmConsumer.poll(receiverOptions.pollTimeout());
+                } while (!isAssigned.getAsBoolean() && !cancelled.get());
+                // Fetches committed offsets or resets positions of assigned partitions
+                for (TopicPartition partition : warmConsumer.assignment())
+                    warmConsumer.position(partition);
+                warmingUp = false;
+                sink.success();
+                // Completion is not delivered if the warm up was cancelled, so the consumer would not be used
+                if (cancelled.get())
+                    closeWarmConsumer();
+            } catch (Exception e) {
+                if (warmConsumer != null) {
+                    this.warmConsumer = null;
+                    warmConsumer.close();
+                }
+                warmingUp = false;
+                sink.error(e);
+            }
+        }).subscribeOn(eventScheduler);
+    }
+
+    @Override
+    public Mono<Void> releaseWarmUp() {
+        return Mono.<Void>fromRunnable(this::closeWarmConsumer).subscribeOn(eventScheduler);
+    }
+
+    /**
+     * Closes the consumer created by warm up if it has not been used by a subscribed receiver.
+     * Invoked on the event thread, which also takes the consumer when the receiver is subscribed.
+     */
+    private void closeWarmConsumer() {
+        org.apache.kafka.clients.consumer.Consumer<K, V> warmConsumer = this.warmConsumer;
+        if (warmConsumer != null) {
+            this.warmConsumer = null;
+            warmUpAssigned = false;
+            warmConsumer.close();
+        }
+    }
+
     @Override
     public <T> Mono<T> doOnConsumer(Function<org.apache.kafka.clients.consumer.Consumer<K, V>, ? extends T> function) {
         return Mono.create(monoSink -> {
@@ -219,42 +451,122 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         });
     }
 
+    @Override
+    public void pause(TopicPartition... partitions) {
+        applicationPausedPartitions.addAll(Arrays.asList(partitions));
+    }
+
+    @Override
+    public void resume(TopicPartition... partitions) {
+        applicationPausedPartitions.removeAll(Arrays.asList(partitions));
+    }
+
     @Override
     public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
         log.debug("onPartitionsAssigned {}", partitions);
+        if (warmingUp) {
+            // Partitions are paused until the receiver is subscribed and the listeners are invoked then
+            warmConsumer.pause(partitions);
+            warmUpAssigned = true;
+            return;
+        }
         // onAssign methods may perform seek. It is safe to use the consumer here since we are in a poll()
+        if (materializedTable != null)
+            materializedTable.onAssign(partitions, consumer);
         if (!partitions.isEmpty()) {
+            OffsetStore offsetStore = receiverOptions.offsetStore();
+            if (offsetStore != null) {
+                for (Map.Entry<TopicPartition, Long> entry : offsetStore.load(partitions).entrySet())
+                    consumer.seek(entry.getKey(), entry.getValue());
+            }
+            if (startPositions != null)
+                startPositions.onAssign(partitions, consumer);
             for (Consumer<Collection<ReceiverPartition>> onAssign : receiverOptions.assignListeners())
                 onAssign.accept(toSeekable(partitions));
+            if (partitionEpochs != null)
+                partitionEpochs.onAssign(partitions);
+            if (partitionedRecords != null)
+                partitionedRecords.onAssign(partitions);
         }
     }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
         log.debug("onPartitionsRevoked {}", partitions);
+        if (warmingUp)
+            return;
         if (!partitions.isEmpty()) {
             // It is safe to use the consumer here since we are in a poll()
             if (ackMode != AckMode.ATMOST_ONCE)
                 commitEvent.runIfRequired(true);
+            if (partitionEpochs != null)
+                partitionEpochs.onRevoke(partitions);
+            commitEvent.commitBatch.removeOffsets(partitions);
             for (Consumer<Collection<ReceiverPartition>> onRevoke : receiverOptions.revokeListeners()) {
                 onRevoke.accept(toSeekable(partitions));
             }
+            if (inFlightRecords != null)
+                inFlightRecords.onRevoke(partitions);
+            if (inFlightBytes != null)
+                inFlightBytes.onRevoke(partitions);
+            if (deferredCommits != null)
+                deferredCommits.onRevoke(partitions);
+            if (filteredRecords != null)
+                filteredRecords.onRevoke(partitions);
+            if (materializedTable != null)
+                materializedTable.onRevoke(partitions);
+            pollEvent.onRevoke(partitions);
+            if (partitionedRecords != null)
+                partitionedRecords.onRevoke(partitions);
         }
     }
 
-    private synchronized Flux<ConsumerRecords<K, V>> createConsumerFlux() {
+    private Flux<ConsumerRecords<K, V>> createConsumerFlux() {
+        return createConsumerFlux(false);
+    }
+
+    private synchronized Flux<ConsumerRecords<K, V>> createConsumerFlux(boolean partitioned) {
         if (consumerFlux != null)
             throw new IllegalStateException("Multiple subscribers are not supported for KafkaReceiver flux");
 
         Consumer<Flux<?>> kafkaSubscribeOrAssign = (flux) -> receiverOptions.subscriber(this).accept(consumer);
         initEvent = new InitEvent(kafkaSubscribeOrAssign);
         pollEvent = new PollEvent();
+        dispatchEvent = new DispatchEvent();
 
         commitEvent = new CommitEvent();
+        int maxInFlight = receiverOptions.maxInFlightPerPartition();
+        boolean acknowledged = ackMode == AckMode.AUTO_ACK || ackMode == AckMode.MANUAL_ACK || ackMode == AckMode.BATCH_ACK;
+        inFlightRecords = maxInFlight > 0 && acknowledged ? new InFlightRecords(maxInFlight) : null;
+        long maxBufferedBytes = receiverOptions.maxBufferedBytes();
+        inFlightBytes = maxBufferedBytes > 0 && acknowledged ? new InFlightBytes(maxBufferedBytes) : null;
+        // Records acknowledged by all subscribers of a multicast Flux may be committed only after
+        // preceding records have been acknowledged by all subscribers. Unless configured, partitions
+        // are paused once deferred acknowledgements exceed the records that may be queued for a
+        // subscriber, so that a subscriber that doesn't acknowledge records doesn't grow the backlog.
+        int maxDeferred = receiverOptions.maxDeferredCommits();
+        if (maxDeferred <= 0 && multicast)
+            maxDeferred = 2 * MULTICAST_PREFETCH;
+        deferredCommits = maxDeferred > 0 && ackMode == AckMode.MANUAL_ACK ? new DeferredCommits(maxDeferred) : null;
+        // Partition fluxes discard their own queued records on revocation, epochs of partitioned
+        // receivers are used only to ignore acknowledgements of revoked partitions.
+        partitionEpochs = acknowledged ? new PartitionEpochs() : null;
+        startPositions = StartPositions.create(receiverOptions, startedPartitions);
+        Predicate<Headers> headerFilter = receiverOptions.headerFilter();
+        Predicate<ConsumerRecord<K, V>> recordFilter = receiverOptions.recordFilter();
+        filteredRecords = headerFilter != null || recordFilter != null ? new FilteredRecords<>(headerFilter, recordFilter, acknowledged) : null;
 
         recordEmitter = EmitterProcessor.create();
         recordSubmission = recordEmitter.sink();
-        scheduler = Schedulers.single(receiverOptions.schedulerSupplier().get());
+        publishScheduler = receiverOptions.schedulerSupplier().get();
+        scheduler = Schedulers.single(publishScheduler);
+        partitionedRecords = partitioned ? new PartitionedRecords<>(publishScheduler, Queues.SMALL_BUFFER_SIZE, this::toReceiverRecord) : null;
+        boolean lazyDeserialization = receiverOptions.lazyDeserialization();
+        // Record filters and materialized tables use deserialized records on the polling thread
+        boolean deserializeOnPoll = lazyDeserialization || recordFilter != null || ackMode == AckMode.MATERIALIZE;
+        int deserializationParallelism = deserializeOnPoll ? 0 : receiverOptions.deserializationParallelism();
+        recordDeserializer = lazyDeserialization || deserializationParallelism > 0 ? new RecordDeserializer<>(receiverOptions) : null;
+        parallelDeserializer = deserializationParallelism > 0 ? new ParallelDeserializer<>(receiverOptions, recordDeserializer, deserializationParallelism) : null;
 
         consumerFlux = recordEmitter
                 .publishOn(scheduler)
@@ -291,6 +603,10 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         return commitEvent.commitBatch;
     }
 
+    boolean warmUpAssigned() {
+        return warmUpAssigned;
+    }
+
     void close() {
         dispose(true);
     }
@@ -298,53 +614,101 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
     private Collection<ReceiverPartition> toSeekable(Collection<TopicPartition> partitions) {
         List<ReceiverPartition> seekableList = new ArrayList<>(partitions.size());
         for (TopicPartition partition : partitions)
-            seekableList.add(new SeekablePartition(consumer, partition));
+            seekableList.add(new SeekablePartition(consumer, partition, applicationPausedPartitions));
         return seekableList;
     }
 
     private void start() {
         log.debug("start");
+        if (warmingUp)
+            throw new IllegalStateException("KafkaReceiver flux subscribed before warm up completed");
         if (!isActive.compareAndSet(false, true))
             throw new IllegalStateException("Multiple subscribers are not supported for KafkaReceiver flux");
 
-        fluxList.clear();
         requestsPending.set(0);
         consecutiveCommitFailures.set(0);
         awaitingTransaction.set(false);
+        undeliveredBatches.set(0);
 
-        eventEmitter = EmitterProcessor.create();
-        eventSubmission = eventEmitter.sink(OverflowStrategy.BUFFER);
         eventScheduler.start();
+        eventLoop = new EventLoop<>(eventScheduler, this::doEvent);
+        subscribeDisposables.add(eventLoop::dispose);
+        if (metrics != null) {
+            ReceiverGauges gauges = new ReceiverGauges();
+            metrics.bind(gauges);
+            subscribeDisposables.add(() -> metrics.unbind(gauges));
+        }
+        eventLoop.submit(initEvent);
 
-        Flux<InitEvent> initFlux = Flux.just(initEvent);
+        Duration commitInterval = receiverOptions.commitInterval();
+        if ((ackMode == AckMode.AUTO_ACK || ackMode == AckMode.MANUAL_ACK || ackMode == AckMode.BATCH_ACK) && !commitInterval.isZero())
+            subscribeDisposables.add(eventLoop.schedulePeriodically(commitEvent::periodicEvent, commitInterval));
+    }
 
-        fluxList.add(eventEmitter);
-        fluxList.add(initFlux);
+    private ReceiverRecord<K, V> toReceiverRecord(ConsumerRecord<K, V> record) {
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        CommittableOffset committableOffset = new CommittableOffset(topicPartition, record.offset(), emitNanos());
+        if (record instanceof LazyConsumerRecord)
+            return new LazyConsumerRecord.LazyReceiverRecord<>((LazyConsumerRecord<K, V>) record, committableOffset);
+        return new ReceiverRecord<>(record, committableOffset);
+    }
 
-        Duration commitInterval = receiverOptions.commitInterval();
-        if ((ackMode == AckMode.AUTO_ACK || ackMode == AckMode.MANUAL_ACK) && !commitInterval.isZero()) {
-            Flux<CommitEvent> periodicCommitFlux = Flux.interval(receiverOptions.commitInterval())
-                                                       .onBackpressureLatest()
-                                                       .map(i -> commitEvent.periodicEvent());
-            fluxList.add(periodicCommitFlux);
-        }
+    /**
+     * Returns the time at which a record is emitted if acknowledgement delays are measured.
+     */
+    private long emitNanos() {
+        return metrics != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Returns the records of a dispatched batch, skipping records of partitions that were
+     * revoked after the batch was polled. Must be invoked once for each batch on delivery.
+     */
+    private Iterable<ConsumerRecord<K, V>> liveRecords(ConsumerRecords<K, V> records) {
+        return partitionEpochs != null ? partitionEpochs.liveRecords(records, this::onSkipped) : records;
+    }
+
+    /**
+     * Returns the demand of records that were counted when their batch was dispatched
+     * but were skipped on delivery since their partition was revoked.
+     */
+    private void onSkipped(int count) {
+        if (OperatorUtils.safeAddAndGet(requestsPending, count) > 0)
+            pollEvent.scheduleIfRequired();
+    }
+
+    private ConsumerRecords<K, V> liveBatch(ConsumerRecords<K, V> records) {
+        return partitionEpochs != null ? partitionEpochs.liveBatch(records) : records;
+    }
 
-        eventFlux = Flux.merge(fluxList)
-                        .publishOn(eventScheduler);
+    private void dispatch(ConsumerRecords<K, V> records) {
+        if (partitionedRecords != null)
+            partitionedRecords.onNext(records);
+        else
+            recordSubmission.next(records);
+    }
 
-        subscribeDisposables.add(eventFlux.subscribe(event -> doEvent(event)));
+    /**
+     * Acknowledges records that were filtered out after all preceding records of
+     * the partition were acknowledged.
+     */
+    private void acknowledgeFiltered(TopicPartition partition, long offset) {
+        int commitBatchSize = receiverOptions.commitBatchSize();
+        long uncommittedCount = commitEvent.commitBatch.updateOffset(partition, offset);
+        if (commitBatchSize > 0 && uncommittedCount >= commitBatchSize)
+            commitEvent.scheduleIfRequired();
     }
 
     private void fail(Throwable e) {
         log.error("Consumer flux exception", e);
+        if (partitionedRecords != null)
+            partitionedRecords.onError(e);
         recordSubmission.error(e);
     }
 
     private void dispose() {
         boolean isEventsThread = eventScheduler.isCurrentThreadFromScheduler();
-        boolean isEventsEmitterAvailable =
-                !(eventSubmission.isCancelled() || eventEmitter.isTerminated() || eventEmitter.isCancelled());
-        this.dispose(!isEventsThread && isEventsEmitterAvailable);
+        this.dispose(!isEventsThread && !eventLoop.isDisposed());
     }
 
     private void dispose(boolean async) {
@@ -365,7 +729,7 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             } catch (Exception e) {
                 log.warn("Cancel exception: " + e);
             } finally {
-                fluxList.clear();
+                eventLoop.dispose();
                 eventScheduler.dispose();
                 scheduler.dispose();
                 try {
@@ -386,6 +750,12 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
                                 log.warn("Consumer could not be closed", e);
                         }
                     }
+                    if (partitionedRecords != null)
+                        partitionedRecords.onComplete();
+                    if (parallelDeserializer != null)
+                        parallelDeserializer.close();
+                    if (recordDeserializer != null)
+                        recordDeserializer.close();
                     consumerFlux = null;
                     consumerProxy = null;
                     atmostOnceOffsets = null;
@@ -405,7 +775,7 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
     }
 
     private void emit(Event<?> event) {
-        eventSubmission.next(event);
+        eventLoop.submit(event);
     }
 
     abstract class Event<R> implements Runnable {
@@ -430,8 +800,19 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             try {
                 isActive.set(true);
                 isClosed.set(false);
-                consumer = consumerFactory.createConsumer(receiverOptions);
-                kafkaSubscribeOrAssign.accept(consumerFlux);
+                org.apache.kafka.clients.consumer.Consumer<K, V> warmConsumer = DefaultKafkaReceiver.this.warmConsumer;
+                DefaultKafkaReceiver.this.warmConsumer = null;
+                if (warmConsumer != null && rawConsumer() == (recordDeserializer != null)) {
+                    // Listeners of partitions assigned during warm up are invoked now that the receiver is initialized
+                    consumer = warmConsumer;
+                    pollEvent.onWarmUp(consumer.paused());
+                    onPartitionsAssigned(new ArrayList<>(consumer.assignment()));
+                } else {
+                    if (warmConsumer != null)
+                        warmConsumer.close();
+                    consumer = recordDeserializer != null ? createRawConsumer() : consumerFactory.createConsumer(receiverOptions);
+                    kafkaSubscribeOrAssign.accept(consumerFlux);
+                }
             } catch (Exception e) {
                 if (isActive.get()) {
                     log.error("Unexpected exception", e);
@@ -441,14 +822,44 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         }
     }
 
+    /**
+     * Returns true if the consumer of a warmed up receiver is expected to poll raw records. The mode
+     * of the receiver is not known during warm up, so this is based on deserialization options only.
+     */
+    private boolean rawConsumer() {
+        return receiverOptions.lazyDeserialization() ||
+                (receiverOptions.deserializationParallelism() > 0 && receiverOptions.recordFilter() == null);
+    }
+
+    /**
+     * Creates a consumer that polls keys and values as byte arrays, to be deserialized by
+     * {@link ParallelDeserializer} or on demand by {@link LazyConsumerRecord}. Records returned by this consumer are never dispatched
+     * without deserialization, so the consumer is used with the key and value types of the receiver.
+     */
+    @SuppressWarnings("unchecked")
+    private org.apache.kafka.clients.consumer.Consumer<K, V> createRawConsumer() {
+        return (org.apache.kafka.clients.consumer.Consumer<K, V>) (org.apache.kafka.clients.consumer.Consumer<?, ?>)
+                consumerFactory.createRawConsumer(receiverOptions);
+    }
+
     private class PollEvent extends Event<ConsumerRecords<K, V>> {
 
         private AtomicInteger pendingCount = new AtomicInteger();
         private final Duration pollTimeout;
-        private final AtomicBoolean partitionsPaused = new AtomicBoolean();
+        private final AdaptivePollTimeout adaptivePollTimeout;
+        private final DelayedPartitions delayedPartitions;
+        private final TopicPriorities topicPriorities;
+        private final Set<TopicPartition> pausedPartitions = new HashSet<>();
+        private final Map<TopicPartition, Long> pauseStartNanos = new HashMap<>();
         PollEvent() {
             super(EventType.POLL);
             pollTimeout = receiverOptions.pollTimeout();
+            Duration minPollTimeout = receiverOptions.minPollTimeout();
+            adaptivePollTimeout = minPollTimeout != null ? new AdaptivePollTimeout(minPollTimeout, pollTimeout) : null;
+            Function<ConsumerRecord<?, ?>, Instant> recordDueTime = receiverOptions.recordDueTime();
+            delayedPartitions = recordDueTime != null ? new DelayedPartitions(recordDueTime) : null;
+            Map<String, Integer> priorities = receiverOptions.topicPriorities();
+            topicPriorities = !priorities.isEmpty() ? new TopicPriorities(priorities, receiverOptions.topicPriorityMaxLag()) : null;
         }
         @Override
         public void run() {
@@ -459,20 +870,48 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
                     // chosen by reactor.
                     commitEvent.runIfRequired(false);
                     pendingCount.decrementAndGet();
-                    if (requestsPending.get() > 0 && !awaitingTransaction.get()) {
-                        if (partitionsPaused.getAndSet(false))
-                            consumer.resume(consumer.assignment());
-                    } else {
-                        if (!partitionsPaused.getAndSet(true))
-                            consumer.pause(consumer.assignment());
-                    }
-
-                    ConsumerRecords<K, V> records = consumer.poll(pollTimeout);
-                    if (records.count() > 0) {
-                        recordSubmission.next(records);
+                    boolean hasDemand = requestsPending.get() > 0 && !suspendForTransaction();
+                    if (hasDemand)
+                        pauseOnly(partitionsWithoutDemand());
+                    else
+                        pauseOnly(consumer.assignment());
+
+                    long pollStartNanos = metrics != null ? System.nanoTime() : 0L;
+                    ConsumerRecords<K, V> records = consumer.poll(pollTimeout());
+                    if (metrics != null)
+                        metrics.onPoll(System.nanoTime() - pollStartNanos, records.count());
+                    if (recordDeserializer != null && parallelDeserializer == null)
+                        records = LazyConsumerRecord.lazyRecords(rawRecords(records), recordDeserializer);
+                    if (delayedPartitions != null && !records.isEmpty())
+                        records = delayedPartitions.onPoll(records, consumer);
+                    if (topicPriorities != null && hasDemand)
+                        topicPriorities.onPoll(consumer.metrics());
+                    if (adaptivePollTimeout != null && adaptivePollTimeout.onPoll(records.count(), hasDemand, commitEvent.inProgress.get() > 0))
+                        log.debug("Poll timeout changed to {}", adaptivePollTimeout.current());
+                    if (filteredRecords != null && !records.isEmpty())
+                        records = filteredRecords.onPoll(records, DefaultKafkaReceiver.this::acknowledgeFiltered);
+                    if (materializedTable != null)
+                        materializedTable.onPoll(records, consumer);
+                    // Records of materialized tables are applied on the polling thread and are not dispatched
+                    boolean dispatched = records.count() > 0 && materializedTable == null;
+                    if (dispatched) {
+                        if (inFlightRecords != null)
+                            inFlightRecords.onDispatch(records);
+                        if (inFlightBytes != null)
+                            inFlightBytes.onDispatch(records);
+                        if (deferredCommits != null)
+                            deferredCommits.onDispatch(records);
+                        if (partitionEpochs != null && partitionedRecords == null)
+                            partitionEpochs.onDispatch(records);
+                        if (ackMode == AckMode.EXACTLY_ONCE)
+                            undeliveredBatches.incrementAndGet();
+                        if (parallelDeserializer != null)
+                            parallelDeserializer.deserialize(rawRecords(records), () -> emit(dispatchEvent));
+                        else
+                            dispatch(records);
                     }
                     if (isActive.get()) {
-                        int count = ((ackMode == AckMode.AUTO_ACK || ackMode == AckMode.EXACTLY_ONCE) && records.count() > 0) ? 1 : records.count();
+                        int count = !dispatched ? 0 : (ackMode == AckMode.AUTO_ACK || ackMode == AckMode.BATCH_ACK || ackMode == AckMode.EXACTLY_ONCE) ? 1 : records.count();
                         if (requestsPending.get() == Long.MAX_VALUE || requestsPending.addAndGet(0 - count) > 0 || commitEvent.inProgress.get() > 0)
                             scheduleIfRequired();
                     }
@@ -485,18 +924,158 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             }
         }
 
+        /**
+         * Returns true if polling should be suspended until the offsets of the current transaction
+         * have been sent. If prefetching is enabled, batches are polled until the number of batches
+         * waiting to be released within a transaction reaches the configured prefetch.
+         */
+        private boolean suspendForTransaction() {
+            int prefetch = receiverOptions.transactionPrefetch();
+            if (prefetch > 0)
+                return undeliveredBatches.get() >= prefetch;
+            return awaitingTransaction.get();
+        }
+
         void scheduleIfRequired() {
             if (pendingCount.get() <= 0) {
                 emit(this);
                 pendingCount.incrementAndGet();
             }
         }
+
+        /**
+         * Records partitions paused while the consumer was warmed up, which are resumed
+         * by the first poll with demand.
+         */
+        void onWarmUp(Collection<TopicPartition> partitions) {
+            pausedPartitions.addAll(partitions);
+            onPaused(partitions);
+        }
+
+        void onRevoke(Collection<TopicPartition> partitions) {
+            pausedPartitions.removeAll(partitions);
+            onResumed(partitions);
+            if (delayedPartitions != null)
+                delayedPartitions.onRevoke(partitions);
+        }
+
+        @SuppressWarnings("unchecked")
+        private ConsumerRecords<byte[], byte[]> rawRecords(ConsumerRecords<K, V> records) {
+            return (ConsumerRecords<byte[], byte[]>) (ConsumerRecords<?, ?>) records;
+        }
+
+        /**
+         * Returns the timeout for the next poll, which is adjusted after every poll
+         * if adaptive poll timeouts are enabled.
+         */
+        Duration pollTimeout() {
+            return adaptivePollTimeout != null ? adaptivePollTimeout.current() : pollTimeout;
+        }
+
+        private Collection<TopicPartition> partitionsWithoutDemand() {
+            if (inFlightBytes != null && inFlightBytes.isExhausted())
+                return consumer.assignment();
+            // Priorities are applied only if demand is bounded
+            boolean prioritized = topicPriorities != null && topicPriorities.hasBacklog() && requestsPending.get() != Long.MAX_VALUE;
+            if (inFlightRecords == null && deferredCommits == null && partitionedRecords == null && !prioritized &&
+                    (delayedPartitions == null || !delayedPartitions.hasDelayed()) && applicationPausedPartitions.isEmpty())
+                return Collections.emptySet();
+            Set<TopicPartition> partitions = new HashSet<>();
+            if (!applicationPausedPartitions.isEmpty()) {
+                // Partitions paused by the application may not be currently assigned
+                Set<TopicPartition> assignment = consumer.assignment();
+                for (TopicPartition partition : applicationPausedPartitions) {
+                    if (assignment.contains(partition))
+                        partitions.add(partition);
+                }
+            }
+            if (inFlightRecords != null)
+                partitions.addAll(inFlightRecords.saturatedPartitions(consumer.assignment()));
+            if (deferredCommits != null)
+                partitions.addAll(deferredCommits.saturatedPartitions());
+            if (partitionedRecords != null)
+                partitions.addAll(partitionedRecords.backlogged());
+            if (delayedPartitions != null)
+                delayedPartitions.addDelayed(partitions);
+            if (prioritized)
+                topicPriorities.addDeprioritized(consumer.assignment(), partitions);
+            return partitions;
+        }
+
+        /**
+         * Pauses the specified partitions and resumes any other partitions that were
+         * previously paused by this receiver. Only the partitions whose state changes
+         * are paused or resumed on the consumer.
+         */
+        private void pauseOnly(Collection<TopicPartition> partitions) {
+            if (pausedPartitions.isEmpty() && partitions.isEmpty())
+                return;
+            List<TopicPartition> toResume = new ArrayList<>();
+            for (TopicPartition partition : pausedPartitions) {
+                if (!partitions.contains(partition))
+                    toResume.add(partition);
+            }
+            List<TopicPartition> toPause = new ArrayList<>();
+            for (TopicPartition partition : partitions) {
+                if (!pausedPartitions.contains(partition))
+                    toPause.add(partition);
+            }
+            if (!toResume.isEmpty()) {
+                consumer.resume(toResume);
+                pausedPartitions.removeAll(toResume);
+                onResumed(toResume);
+            }
+            if (!toPause.isEmpty()) {
+                consumer.pause(toPause);
+                pausedPartitions.addAll(toPause);
+                onPaused(toPause);
+            }
+        }
+
+        private void onPaused(Collection<TopicPartition> partitions) {
+            if (metrics == null)
+                return;
+            long now = System.nanoTime();
+            for (TopicPartition partition : partitions)
+                pauseStartNanos.put(partition, now);
+        }
+
+        private void onResumed(Collection<TopicPartition> partitions) {
+            if (metrics == null || pauseStartNanos.isEmpty())
+                return;
+            long now = System.nanoTime();
+            for (TopicPartition partition : partitions) {
+                Long startNanos = pauseStartNanos.remove(partition);
+                if (startNanos != null)
+                    metrics.onResume(partition, now - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Dispatches batches of records deserialized by {@link ParallelDeserializer} in the order
+     * in which they were polled.
+     */
+    private class DispatchEvent extends Event<ConsumerRecords<K, V>> {
+        DispatchEvent() {
+            super(EventType.DISPATCH);
+        }
+        @Override
+        public void run() {
+            if (isActive.get()) {
+                ConsumerRecords<K, V> records;
+                while ((records = parallelDeserializer.poll()) != null)
+                    dispatch(records);
+            }
+        }
     }
 
     class CommitEvent extends Event<Map<TopicPartition, OffsetAndMetadata>> {
         private final CommittableBatch commitBatch;
         private final AtomicBoolean isPending = new AtomicBoolean();
         private final AtomicInteger inProgress = new AtomicInteger();
+        private final Map<TopicPartition, OffsetAndMetadata> mirrorOffsets = new HashMap<>();
+        private long lastMirrorNanos = System.nanoTime();
         CommitEvent() {
             super(EventType.COMMIT);
             this.commitBatch = new CommittableBatch();
@@ -506,30 +1085,29 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             if (!isPending.compareAndSet(true, false))
                 return;
             final CommitArgs commitArgs = commitBatch.getAndClearOffsets();
+            final long startNanos = metrics != null ? System.nanoTime() : 0L;
             try {
                 if (commitArgs != null) {
                     if (!commitArgs.offsets().isEmpty()) {
                         inProgress.incrementAndGet();
                         switch (ackMode) {
-                            case ATMOST_ONCE:
-                                try {
-                                    consumer.commitSync(commitArgs.offsets());
-                                    handleSuccess(commitArgs, commitArgs.offsets());
-                                    atmostOnceOffsets.onCommit(commitArgs.offsets());
-                                } catch (Exception e) {
-                                    handleFailure(commitArgs, e);
-                                }
-                                inProgress.decrementAndGet();
-                                break;
                             case EXACTLY_ONCE:
                                 // Handled separately using transactional KafkaSender
                                 break;
                             default:
+                                if (receiverOptions.offsetStore() != null) {
+                                    storeOffsets(commitArgs, startNanos);
+                                    break;
+                                }
                                 consumer.commitAsync(commitArgs.offsets(), (offsets, exception) -> {
                                     inProgress.decrementAndGet();
-                                    if (exception == null)
+                                    if (exception == null && atmostOnceOffsets != null)
+                                        atmostOnceOffsets.onCommit(offsets);
+                                    if (exception == null) {
+                                        if (metrics != null)
+                                            metrics.onCommit(System.nanoTime() - startNanos);
                                         handleSuccess(commitArgs, offsets);
-                                    else
+                                    } else
                                         handleFailure(commitArgs, exception);
                                 });
                                 pollEvent.scheduleIfRequired();
@@ -549,6 +1127,35 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             }
         }
 
+        /**
+         * Commits offsets to the configured offset store instead of Kafka and mirrors
+         * them to Kafka if the mirror interval has elapsed.
+         */
+        private void storeOffsets(CommitArgs commitArgs, long startNanos) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = commitArgs.offsets();
+            receiverOptions.offsetStore().store(offsets);
+            inProgress.decrementAndGet();
+            if (metrics != null)
+                metrics.onCommit(System.nanoTime() - startNanos);
+            if (atmostOnceOffsets != null)
+                atmostOnceOffsets.onCommit(offsets);
+            handleSuccess(commitArgs, offsets);
+
+            Duration mirrorInterval = receiverOptions.offsetStoreMirrorInterval();
+            if (mirrorInterval != null) {
+                mirrorOffsets.putAll(offsets);
+                long now = System.nanoTime();
+                if (now - lastMirrorNanos >= mirrorInterval.toNanos()) {
+                    lastMirrorNanos = now;
+                    consumer.commitAsync(new HashMap<>(mirrorOffsets), (mirrored, exception) -> {
+                        if (exception != null)
+                            log.debug("Offsets could not be mirrored to Kafka", exception);
+                    });
+                    mirrorOffsets.clear();
+                }
+            }
+        }
+
         void runIfRequired(boolean force) {
             if (force)
                 isPending.set(true);
@@ -571,6 +1178,8 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
             boolean mayRetry = isRetriableException(exception) &&
                     !isClosed.get() &&
                     consecutiveCommitFailures.incrementAndGet() < receiverOptions.maxCommitAttempts();
+            if (metrics != null)
+                metrics.onCommitFailure(exception, consecutiveCommitFailures.get());
             if (!mayRetry) {
                 List<MonoSink<Void>> callbackEmitters = commitArgs.callbackEmitters();
                 if (callbackEmitters != null && !callbackEmitters.isEmpty()) {
@@ -717,6 +1326,8 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
 
         private final TopicPartition topicPartition;
         private final long commitOffset;
+        private final long epoch;
+        private final long emitNanos;
         private final AtomicBoolean acknowledged;
 
         public CommittableOffset(ConsumerRecord<K, V> record) {
@@ -724,8 +1335,18 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         }
 
         public CommittableOffset(TopicPartition topicPartition, long nextOffset) {
+            this(topicPartition, nextOffset, 0L);
+        }
+
+        /**
+         * Creates the offset of a record emitted at <code>emitNanos</code>, or of a record
+         * whose acknowledgement delay is not measured if <code>emitNanos</code> is zero.
+         */
+        CommittableOffset(TopicPartition topicPartition, long nextOffset, long emitNanos) {
             this.topicPartition = topicPartition;
             this.commitOffset = nextOffset;
+            this.emitNanos = emitNanos;
+            this.epoch = partitionEpochs != null ? partitionEpochs.epoch(topicPartition) : PartitionEpochs.REVOKED;
             this.acknowledged = new AtomicBoolean(false);
         }
 
@@ -756,9 +1377,26 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         }
 
         private int maybeUpdateOffset() {
-            if (acknowledged.compareAndSet(false, true))
-                return commitEvent.commitBatch.updateOffset(topicPartition, commitOffset);
-            else
+            if (acknowledged.compareAndSet(false, true)) {
+                if (metrics != null && emitNanos != 0L)
+                    metrics.onAcknowledge(topicPartition, System.nanoTime() - emitNanos);
+                // Acknowledgements of records delivered before their partition was revoked are ignored
+                if (partitionEpochs != null && partitionEpochs.isStale(topicPartition, epoch))
+                    return commitEvent.commitBatch.batchSize();
+                long offset = commitOffset;
+                if (deferredCommits != null) {
+                    offset = deferredCommits.acknowledge(topicPartition, commitOffset);
+                    if (offset < 0)
+                        return commitEvent.commitBatch.batchSize();
+                }
+                if (inFlightRecords != null)
+                    inFlightRecords.onAcknowledge(topicPartition, offset);
+                if (inFlightBytes != null)
+                    inFlightBytes.onAcknowledge(topicPartition, offset);
+                if (filteredRecords != null)
+                    offset = filteredRecords.onAcknowledge(topicPartition, offset);
+                return commitEvent.commitBatch.updateOffset(topicPartition, offset);
+            } else
                 return commitEvent.commitBatch.batchSize();
         }
 
@@ -779,18 +1417,108 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
         }
     }
 
+    class CommittableRecords extends ReceiverRecords<K, V> {
+
+        private final List<CommittableOffset> offsets;
+
+        CommittableRecords(ConsumerRecords<K, V> records) {
+            super(records);
+            offsets = new ArrayList<>(records.partitions().size());
+            long emitNanos = emitNanos();
+            for (TopicPartition partition : records.partitions()) {
+                List<ConsumerRecord<K, V>> partitionRecords = records.records(partition);
+                if (!partitionRecords.isEmpty())
+                    offsets.add(new CommittableOffset(partition, partitionRecords.get(partitionRecords.size() - 1).offset(), emitNanos));
+            }
+        }
+
+        @Override
+        public Mono<Void> commit() {
+            if (maybeUpdateOffsets() > 0)
+                return Mono.create(emitter -> {
+                    commitEvent.commitBatch.addCallbackEmitter(emitter);
+                    commitEvent.scheduleIfRequired();
+                });
+            else
+                return Mono.empty();
+        }
+
+        @Override
+        public void acknowledge() {
+            int commitBatchSize = receiverOptions.commitBatchSize();
+            long uncommittedCount = maybeUpdateOffsets();
+            if (commitBatchSize > 0 && uncommittedCount >= commitBatchSize)
+                commitEvent.scheduleIfRequired();
+        }
+
+        private int maybeUpdateOffsets() {
+            int uncommittedCount = commitEvent.commitBatch.batchSize();
+            for (CommittableOffset offset : offsets)
+                uncommittedCount = offset.maybeUpdateOffset();
+            return uncommittedCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(offsets);
+        }
+    }
+
+    private class ReceiverGauges implements ReceiverMetrics.Gauges {
+
+        @Override
+        public long requestsPending() {
+            return requestsPending.get();
+        }
+
+        @Override
+        public int eventQueueDepth() {
+            return eventLoop.queueSize();
+        }
+
+        @Override
+        public int consecutiveCommitFailures() {
+            return consecutiveCommitFailures.get();
+        }
+
+        @Override
+        public Duration pollTimeout() {
+            return pollEvent.pollTimeout();
+        }
+    }
+
     private static class AtmostOnceOffsets {
         private final Map<TopicPartition, Long> committedOffsets;
         private final Map<TopicPartition, Long> dispatchedOffsets;
+        private final Map<TopicPartition, PendingCommit> pendingCommits;
 
         AtmostOnceOffsets() {
             this.committedOffsets = new ConcurrentHashMap<TopicPartition, Long>();
             this.dispatchedOffsets = new ConcurrentHashMap<TopicPartition, Long>();
+            this.pendingCommits = new ConcurrentHashMap<TopicPartition, PendingCommit>();
         }
 
         void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {
             for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet())
-                committedOffsets.put(entry.getKey(), entry.getValue().offset());
+                committedOffsets.merge(entry.getKey(), entry.getValue().offset(), Math::max);
+        }
+
+        void onCommitAhead(TopicPartition topicPartition, long offset, Mono<Void> commit) {
+            pendingCommits.put(topicPartition, new PendingCommit(offset, commit));
+        }
+
+        /**
+         * Returns the most recent commit issued for the partition if it commits
+         * beyond <code>offset</code>, or null if there is no such commit.
+         */
+        Mono<Void> pendingCommit(TopicPartition topicPartition, long offset) {
+            PendingCommit pendingCommit = pendingCommits.get(topicPartition);
+            return pendingCommit != null && pendingCommit.offset > offset ? pendingCommit.commit : null;
+        }
+
+        long issuedOffset(TopicPartition topicPartition) {
+            PendingCommit pendingCommit = pendingCommits.get(topicPartition);
+            return pendingCommit == null ? -1 : pendingCommit.offset;
         }
 
         void onDispatch(TopicPartition topicPartition, long offset) {
@@ -804,15 +1532,27 @@ public class DefaultKafkaReceiver<K, V> implements KafkaReceiver<K, V>, Consumer
 
         boolean undoCommitAhead(CommittableBatch committableBatch) {
             boolean undoRequired = false;
-            for (Map.Entry<TopicPartition, Long> entry : committedOffsets.entrySet()) {
+            for (Map.Entry<TopicPartition, Long> entry : dispatchedOffsets.entrySet()) {
                 TopicPartition topicPartition = entry.getKey();
-                long offsetToCommit = dispatchedOffsets.get(entry.getKey()) + 1;
-                if (entry.getValue() > offsetToCommit) {
-                    committableBatch.updateOffset(topicPartition, offsetToCommit);
+                long offsetToCommit = entry.getValue() + 1;
+                // Commits issued ahead may still be in progress
+                long committedOffset = Math.max(committedOffset(topicPartition), issuedOffset(topicPartition));
+                if (committedOffset > offsetToCommit) {
+                    committableBatch.resetOffset(topicPartition, offsetToCommit);
                     undoRequired = true;
                 }
             }
             return undoRequired;
         }
+
+        private static class PendingCommit {
+            private final long offset;
+            private final Mono<Void> commit;
+
+            PendingCommit(long offset, Mono<Void> commit) {
+                this.offset = offset;
+                this.commit = commit;
+            }
+        }
     }
 }
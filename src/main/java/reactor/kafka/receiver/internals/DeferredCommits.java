@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks acknowledgements that may arrive in any order and returns the highest offset
+ * of each partition up to which all dispatched records have been acknowledged. Acknowledgements
+ * beyond the first unacknowledged record are deferred until the gap is filled. Dispatch and
+ * revocation are invoked on the event thread, acknowledgements may be invoked from any thread.
+ */
+class DeferredCommits {
+
+    private final int maxDeferred;
+    private final Map<TopicPartition, PartitionOffsets> partitions;
+
+    DeferredCommits(int maxDeferred) {
+        this.maxDeferred = maxDeferred;
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    void onDispatch(ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            List<? extends ConsumerRecord<?, ?>> partitionRecords = records.records(partition);
+            if (partitionRecords.isEmpty())
+                continue;
+            PartitionOffsets offsets = partitions.computeIfAbsent(partition, p -> new PartitionOffsets());
+            offsets.onDispatch(partitionRecords);
+        }
+    }
+
+    /**
+     * Acknowledges the record at <code>offset</code> and returns the offset of the last record
+     * of the contiguous range of acknowledged records if it was advanced by this acknowledgement,
+     * or -1 if the commit of this offset is deferred.
+     */
+    long acknowledge(TopicPartition partition, long offset) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets == null ? -1 : offsets.acknowledge(offset);
+    }
+
+    int deferredCount(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets == null ? 0 : offsets.deferredCount();
+    }
+
+    Set<TopicPartition> saturatedPartitions() {
+        Set<TopicPartition> saturated = new HashSet<>();
+        for (Map.Entry<TopicPartition, PartitionOffsets> entry : partitions.entrySet()) {
+            if (entry.getValue().deferredCount() >= maxDeferred)
+                saturated.add(entry.getKey());
+        }
+        return saturated;
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked)
+            partitions.remove(partition);
+    }
+
+    /**
+     * Ring of dispatched offsets in increasing order with one acknowledgement bit
+     * for each slot of the ring. Offsets are not required to be contiguous.
+     */
+    static class PartitionOffsets {
+        private long[] offsets;
+        private long[] acknowledged;
+        private int head;
+        private int size;
+        private int deferred;
+
+        PartitionOffsets() {
+            offsets = new long[64];
+            acknowledged = new long[1];
+        }
+
+        synchronized void onDispatch(List<? extends ConsumerRecord<?, ?>> records) {
+            for (ConsumerRecord<?, ?> record : records) {
+                long offset = record.offset();
+                // Offsets are dispatched in order unless the consumer was repositioned
+                // using seek. Acknowledgements of records before the seek are ignored.
+                if (size > 0 && offset <= offsets[slot(size - 1)])
+                    clear();
+                if (size == offsets.length)
+                    grow();
+                offsets[slot(size)] = offset;
+                size++;
+            }
+        }
+
+        synchronized long acknowledge(long offset) {
+            int index = indexOf(offset);
+            if (index < 0)
+                return -1;
+            int slot = slot(index);
+            if (isAcknowledged(slot))
+                return -1;
+            setAcknowledged(slot, true);
+            deferred++;
+            long committable = -1;
+            while (size > 0 && isAcknowledged(head)) {
+                committable = offsets[head];
+                setAcknowledged(head, false);
+                head = (head + 1) & (offsets.length - 1);
+                size--;
+                deferred--;
+            }
+            return committable;
+        }
+
+        synchronized int deferredCount() {
+            return deferred;
+        }
+
+        private int indexOf(long offset) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midOffset = offsets[slot(mid)];
+                if (midOffset < offset)
+                    low = mid + 1;
+                else if (midOffset > offset)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        private int slot(int index) {
+            return (head + index) & (offsets.length - 1);
+        }
+
+        private boolean isAcknowledged(int slot) {
+            return (acknowledged[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private void setAcknowledged(int slot, boolean value) {
+            if (value)
+                acknowledged[slot >>> 6] |= 1L << slot;
+            else
+                acknowledged[slot >>> 6] &= ~(1L << slot);
+        }
+
+        private void clear() {
+            head = 0;
+            size = 0;
+            deferred = 0;
+            for (int i = 0; i < acknowledged.length; i++)
+                acknowledged[i] = 0;
+        }
+
+        private void grow() {
+            long[] newOffsets = new long[offsets.length * 2];
+            long[] newAcknowledged = new long[newOffsets.length >>> 6];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                newOffsets[i] = offsets[slot];
+                if (isAcknowledged(slot))
+                    newAcknowledged[i >>> 6] |= 1L << i;
+            }
+            offsets = newOffsets;
+            acknowledged = newAcknowledged;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Holds back polled records that are not yet due for delivery. When a record of a partition
+ * is not due, the partition is rewound to the record and kept paused until the due time of
+ * the record, so that the record is polled again when it is due. All methods are invoked
+ * on the event thread.
+ */
+class DelayedPartitions {
+
+    private final Function<ConsumerRecord<?, ?>, Instant> dueTime;
+    private final Map<TopicPartition, Instant> dueTimes;
+
+    DelayedPartitions(Function<ConsumerRecord<?, ?>, Instant> dueTime) {
+        this.dueTime = dueTime;
+        this.dueTimes = new HashMap<>();
+    }
+
+    /**
+     * Returns the records of <code>records</code> that are due for delivery. For each partition,
+     * records from the first record that is not yet due are removed and the consumer is positioned
+     * at that record.
+     */
+    <K, V> ConsumerRecords<K, V> onPoll(ConsumerRecords<K, V> records, Consumer<?, ?> consumer) {
+        Instant now = Instant.now();
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> due = null;
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<K, V>> partitionRecords = records.records(partition);
+            int index = 0;
+            Instant notDue = null;
+            for (ConsumerRecord<K, V> record : partitionRecords) {
+                Instant recordDueTime = dueTime.apply(record);
+                if (recordDueTime != null && recordDueTime.isAfter(now)) {
+                    notDue = recordDueTime;
+                    break;
+                }
+                index++;
+            }
+            if (notDue != null) {
+                consumer.seek(partition, partitionRecords.get(index).offset());
+                dueTimes.put(partition, notDue);
+                if (due == null) {
+                    due = new LinkedHashMap<>();
+                    for (TopicPartition p : records.partitions()) {
+                        if (p.equals(partition))
+                            break;
+                        due.put(p, records.records(p));
+                    }
+                }
+                if (index > 0)
+                    due.put(partition, partitionRecords.subList(0, index));
+            } else if (due != null)
+                due.put(partition, partitionRecords);
+        }
+        return due == null ? records : new ConsumerRecords<>(due);
+    }
+
+    /**
+     * Adds the partitions that are waiting for their next record to become due to <code>paused</code>.
+     * Partitions whose records are now due are no longer delayed.
+     */
+    void addDelayed(Set<TopicPartition> paused) {
+        if (dueTimes.isEmpty())
+            return;
+        Instant now = Instant.now();
+        Iterator<Map.Entry<TopicPartition, Instant>> iterator = dueTimes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TopicPartition, Instant> entry = iterator.next();
+            if (entry.getValue().isAfter(now))
+                paused.add(entry.getKey());
+            else
+                iterator.remove();
+        }
+    }
+
+    boolean hasDelayed() {
+        return !dueTimes.isEmpty();
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        dueTimes.keySet().removeAll(revoked);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Executes receiver events on a single-threaded scheduler. Events may be submitted from
+ * any thread and are added to a multi-producer queue that is drained by one task at a time
+ * on the scheduler. Periodic events are executed by the timer of the scheduler, on the same
+ * thread as the drain task.
+ */
+class EventLoop<T> {
+
+    /**
+     * Maximum number of events executed by a drain task before yielding the thread,
+     * so that periodic events are not delayed by events that resubmit themselves.
+     */
+    static final int MAX_DRAIN_COUNT = 32;
+
+    private final Scheduler scheduler;
+    private final Consumer<T> handler;
+    private final Queue<T> queue;
+    private final AtomicInteger wip;
+    private final Runnable drainTask;
+    private volatile boolean disposed;
+
+    EventLoop(Scheduler scheduler, Consumer<T> handler) {
+        this.scheduler = scheduler;
+        this.handler = handler;
+        this.queue = Queues.<T>unboundedMultiproducer().get();
+        this.wip = new AtomicInteger();
+        this.drainTask = this::drain;
+    }
+
+    /**
+     * Adds an event to the queue, scheduling a drain task if one is not already active.
+     * Events submitted after the loop is disposed are ignored.
+     */
+    void submit(T event) {
+        if (disposed)
+            return;
+        queue.offer(event);
+        if (wip.getAndIncrement() == 0)
+            scheduler.schedule(drainTask);
+    }
+
+    /**
+     * Executes the event returned by <code>eventSupplier</code> on the scheduler thread
+     * after every <code>period</code> until the loop is disposed.
+     */
+    Disposable schedulePeriodically(Supplier<T> eventSupplier, Duration period) {
+        long periodMillis = period.toMillis();
+        return scheduler.schedulePeriodically(() -> {
+            if (!disposed)
+                handler.accept(eventSupplier.get());
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * Returns the number of events waiting to be executed. Periodic events are not included.
+     */
+    int queueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Discards pending events. Events that are currently being executed are not interrupted.
+     */
+    void dispose() {
+        disposed = true;
+        queue.clear();
+    }
+
+    private void drain() {
+        int missed = wip.get();
+        int count = 0;
+        while (true) {
+            T event;
+            while ((event = queue.poll()) != null) {
+                if (disposed) {
+                    queue.clear();
+                    return;
+                }
+                handler.accept(event);
+                if (++count == MAX_DRAIN_COUNT) {
+                    // wip is retained, remaining events are executed by a new drain task
+                    scheduler.schedule(drainTask);
+                    return;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0)
+                break;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Removes records that don't match the configured filters from polled batches. If records are
+ * acknowledged, filtered records are acknowledged implicitly: filtered records that follow the last
+ * delivered record of a partition are acknowledged together with that record, or immediately if all
+ * delivered records of the partition have already been acknowledged. Polls and revocation are
+ * invoked on the event thread, acknowledgements may be invoked from any thread.
+ */
+class FilteredRecords<K, V> {
+
+    private final Predicate<Headers> headerFilter;
+    private final Predicate<ConsumerRecord<K, V>> recordFilter;
+    private final Map<TopicPartition, PartitionOffsets> partitions;
+
+    FilteredRecords(Predicate<Headers> headerFilter, Predicate<ConsumerRecord<K, V>> recordFilter, boolean acknowledged) {
+        this.headerFilter = headerFilter;
+        this.recordFilter = recordFilter;
+        this.partitions = acknowledged ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Returns the records of <code>records</code> that match the filters. If records are acknowledged,
+     * <code>acknowledge</code> is invoked with the last filtered offset of partitions whose records were
+     * all filtered if all records delivered earlier have been acknowledged.
+     */
+    ConsumerRecords<K, V> onPoll(ConsumerRecords<K, V> records, BiConsumer<TopicPartition, Long> acknowledge) {
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> matching = new LinkedHashMap<>();
+        boolean filtered = false;
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<K, V>> partitionRecords = records.records(partition);
+            List<ConsumerRecord<K, V>> matchingRecords = new ArrayList<>(partitionRecords.size());
+            long lastFiltered = -1;
+            for (ConsumerRecord<K, V> record : partitionRecords) {
+                if (matches(record))
+                    matchingRecords.add(record);
+                else
+                    lastFiltered = record.offset();
+            }
+            if (!matchingRecords.isEmpty())
+                matching.put(partition, matchingRecords);
+            if (matchingRecords.size() < partitionRecords.size())
+                filtered = true;
+            if (partitions != null && !partitionRecords.isEmpty()) {
+                long lastMatching = matchingRecords.isEmpty() ? -1 : matchingRecords.get(matchingRecords.size() - 1).offset();
+                long offset = partitions.computeIfAbsent(partition, p -> new PartitionOffsets()).onPoll(lastMatching, lastFiltered);
+                if (offset >= 0)
+                    acknowledge.accept(partition, offset);
+            }
+        }
+        return filtered ? new ConsumerRecords<>(matching) : records;
+    }
+
+    /**
+     * Records the acknowledgement of all delivered records of <code>partition</code> up to
+     * <code>offset</code> and returns the offset up to which records may be committed, including
+     * any filtered records that follow the last delivered record.
+     */
+    long onAcknowledge(TopicPartition partition, long offset) {
+        PartitionOffsets offsets = partitions != null ? partitions.get(partition) : null;
+        return offsets == null ? offset : offsets.onAcknowledge(offset);
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        if (partitions != null)
+            partitions.keySet().removeAll(revoked);
+    }
+
+    private boolean matches(ConsumerRecord<K, V> record) {
+        return (headerFilter == null || headerFilter.test(record.headers())) &&
+                (recordFilter == null || recordFilter.test(record));
+    }
+
+    static class PartitionOffsets {
+        private long delivered = -1;
+        private long acknowledged = -1;
+        private long filtered = -1;
+
+        /**
+         * Returns the last filtered offset if it may be acknowledged immediately, or -1 otherwise.
+         */
+        synchronized long onPoll(long lastMatching, long lastFiltered) {
+            if (lastMatching >= 0) {
+                delivered = lastMatching;
+                filtered = lastFiltered > lastMatching ? lastFiltered : -1;
+                return -1;
+            } else if (acknowledged >= delivered) {
+                acknowledged = lastFiltered;
+                delivered = lastFiltered;
+                filtered = -1;
+                return lastFiltered;
+            } else {
+                filtered = lastFiltered;
+                return -1;
+            }
+        }
+
+        synchronized long onAcknowledge(long offset) {
+            acknowledged = Math.max(acknowledged, offset);
+            if (acknowledged >= delivered && filtered > acknowledged) {
+                acknowledged = filtered;
+                delivered = filtered;
+                filtered = -1;
+            }
+            return acknowledged;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks the serialized size of records that have been dispatched by the receiver but
+ * not yet acknowledged. The size of a record is released when the record or a later record
+ * of the same partition is acknowledged. Dispatch and revocation are invoked on the event
+ * thread, acknowledgements may be invoked from any thread.
+ */
+class InFlightBytes {
+
+    private final long maxBytes;
+    private final AtomicLong inFlightBytes;
+    private final Map<TopicPartition, PartitionBytes> partitions;
+
+    InFlightBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.inFlightBytes = new AtomicLong();
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    void onDispatch(ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            PartitionBytes partitionBytes = partitions.computeIfAbsent(partition, p -> new PartitionBytes());
+            for (ConsumerRecord<?, ?> record : records.records(partition)) {
+                // Records at or before an offset that is already in flight are redelivered
+                // after a seek, earlier records of the partition will not be acknowledged.
+                if (record.offset() <= partitionBytes.dispatchedOffset)
+                    release(partitionBytes.records, Long.MAX_VALUE);
+                long size = Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+                partitionBytes.records.add(new RecordSize(record.offset(), size));
+                partitionBytes.dispatchedOffset = record.offset();
+                inFlightBytes.addAndGet(size);
+            }
+        }
+    }
+
+    void onAcknowledge(TopicPartition partition, long offset) {
+        PartitionBytes partitionBytes = partitions.get(partition);
+        if (partitionBytes != null)
+            release(partitionBytes.records, offset);
+    }
+
+    long inFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    /**
+     * Returns true if the size of records in flight has reached the maximum. At least one
+     * record is always allowed in flight, even if it is larger than the maximum.
+     */
+    boolean isExhausted() {
+        return inFlightBytes.get() >= maxBytes;
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionBytes partitionBytes = partitions.remove(partition);
+            if (partitionBytes != null)
+                release(partitionBytes.records, Long.MAX_VALUE);
+        }
+    }
+
+    private void release(Queue<RecordSize> queue, long offset) {
+        RecordSize recordSize;
+        while ((recordSize = queue.peek()) != null && recordSize.offset <= offset) {
+            // Acknowledgements from other threads may release the same record concurrently
+            if (queue.remove(recordSize))
+                inFlightBytes.addAndGet(-recordSize.size);
+        }
+    }
+
+    private static class PartitionBytes {
+        private final Queue<RecordSize> records = new ConcurrentLinkedQueue<>();
+        // Updated only on the event thread
+        private long dispatchedOffset = -1;
+    }
+
+    private static class RecordSize {
+        private final long offset;
+        private final long size;
+
+        RecordSize(long offset, long size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+}
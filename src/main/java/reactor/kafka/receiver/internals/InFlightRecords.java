@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks records that have been dispatched by the receiver but not yet acknowledged
+ * for each partition. Dispatch and revocation are invoked on the event thread, acknowledgements
+ * may be invoked from any thread.
+ */
+class InFlightRecords {
+
+    private final int maxInFlight;
+    private final Map<TopicPartition, PartitionProgress> partitions;
+
+    InFlightRecords(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    void onDispatch(ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            List<? extends ConsumerRecord<?, ?>> partitionRecords = records.records(partition);
+            if (partitionRecords.isEmpty())
+                continue;
+            long firstOffset = partitionRecords.get(0).offset();
+            long lastOffset = partitionRecords.get(partitionRecords.size() - 1).offset();
+            PartitionProgress progress = partitions.computeIfAbsent(partition, p -> new PartitionProgress(firstOffset - 1));
+            progress.dispatchedOffset = lastOffset;
+        }
+    }
+
+    void onAcknowledge(TopicPartition partition, long offset) {
+        PartitionProgress progress = partitions.get(partition);
+        if (progress != null)
+            progress.acknowledge(offset);
+    }
+
+    long inFlightCount(TopicPartition partition) {
+        PartitionProgress progress = partitions.get(partition);
+        return progress == null ? 0 : progress.inFlightCount();
+    }
+
+    Set<TopicPartition> saturatedPartitions(Collection<TopicPartition> assignment) {
+        Set<TopicPartition> saturated = new HashSet<>();
+        for (TopicPartition partition : assignment) {
+            if (inFlightCount(partition) >= maxInFlight)
+                saturated.add(partition);
+        }
+        return saturated;
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked)
+            partitions.remove(partition);
+    }
+
+    private static class PartitionProgress {
+        private final AtomicLong acknowledgedOffset;
+        private volatile long dispatchedOffset;
+
+        PartitionProgress(long initialOffset) {
+            this.acknowledgedOffset = new AtomicLong(initialOffset);
+            this.dispatchedOffset = initialOffset;
+        }
+
+        void acknowledge(long offset) {
+            long current;
+            while ((current = acknowledgedOffset.get()) < offset) {
+                if (acknowledgedOffset.compareAndSet(current, offset))
+                    break;
+            }
+        }
+
+        long inFlightCount() {
+            return Math.max(0, dispatchedOffset - acknowledgedOffset.get());
+        }
+    }
+}
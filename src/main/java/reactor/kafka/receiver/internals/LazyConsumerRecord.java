@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+
+/**
+ * Consumer record that retains the serialized key and value of a record polled as byte arrays
+ * and deserializes them on first access. Deserialized keys and values are cached, so each
+ * is deserialized at most once even if accessed concurrently.
+ */
+class LazyConsumerRecord<K, V> extends ConsumerRecord<K, V> {
+
+    private final ConsumerRecord<byte[], byte[]> rawRecord;
+    private final RecordDeserializer<K, V> recordDeserializer;
+    private volatile boolean keyDeserialized;
+    private volatile boolean valueDeserialized;
+    private K key;
+    private V value;
+
+    @SuppressWarnings("deprecation")
+    LazyConsumerRecord(ConsumerRecord<byte[], byte[]> rawRecord, RecordDeserializer<K, V> recordDeserializer) {
+        super(rawRecord.topic(),
+                rawRecord.partition(),
+                rawRecord.offset(),
+                rawRecord.timestamp(),
+                rawRecord.timestampType(),
+                rawRecord.checksum(),
+                rawRecord.serializedKeySize(),
+                rawRecord.serializedValueSize(),
+                null,
+                null,
+                rawRecord.headers());
+        this.rawRecord = rawRecord;
+        this.recordDeserializer = recordDeserializer;
+    }
+
+    /**
+     * Returns records whose keys and values are deserialized on first access.
+     */
+    static <K, V> ConsumerRecords<K, V> lazyRecords(ConsumerRecords<byte[], byte[]> rawRecords, RecordDeserializer<K, V> recordDeserializer) {
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new LinkedHashMap<>();
+        for (TopicPartition partition : rawRecords.partitions()) {
+            List<ConsumerRecord<byte[], byte[]>> partitionRecords = rawRecords.records(partition);
+            List<ConsumerRecord<K, V>> list = new ArrayList<>(partitionRecords.size());
+            for (ConsumerRecord<byte[], byte[]> record : partitionRecords)
+                list.add(new LazyConsumerRecord<>(record, recordDeserializer));
+            records.put(partition, list);
+        }
+        return new ConsumerRecords<>(records);
+    }
+
+    /**
+     * Returns the deserialized key, deserializing the key on first access.
+     * @throws org.apache.kafka.common.errors.SerializationException if the key could not be deserialized
+     */
+    @Override
+    public K key() {
+        if (!keyDeserialized) {
+            synchronized (this) {
+                if (!keyDeserialized) {
+                    key = recordDeserializer.deserializeKey(rawRecord);
+                    keyDeserialized = true;
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the deserialized value, deserializing the value on first access.
+     * @throws org.apache.kafka.common.errors.SerializationException if the value could not be deserialized
+     */
+    @Override
+    public V value() {
+        if (!valueDeserialized) {
+            synchronized (this) {
+                if (!valueDeserialized) {
+                    value = recordDeserializer.deserializeValue(rawRecord);
+                    valueDeserialized = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyConsumerRecord(topic = " + topic() + ", partition = " + partition() + ", offset = " + offset() +
+                ", keyDeserialized = " + keyDeserialized + ", valueDeserialized = " + valueDeserialized + ")";
+    }
+
+    /**
+     * Receiver record whose key and value are obtained from a {@link LazyConsumerRecord}
+     * on first access.
+     */
+    static class LazyReceiverRecord<K, V> extends ReceiverRecord<K, V> {
+
+        private final LazyConsumerRecord<K, V> record;
+
+        LazyReceiverRecord(LazyConsumerRecord<K, V> record, ReceiverOffset receiverOffset) {
+            super(record, null, null, receiverOffset);
+            this.record = record;
+        }
+
+        @Override
+        public K key() {
+            return record.key();
+        }
+
+        @Override
+        public V value() {
+            return record.value();
+        }
+
+        @Override
+        public String toString() {
+            return record.toString();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Table with the latest value of each key of the assigned partitions. Assigned partitions are read
+ * from the beginning and the table is ready when the position of every partition assigned before
+ * the table became ready has reached the end offset of the partition at assignment. Records with
+ * null values delete their keys from the table. Assignment, revocation and polls are invoked on
+ * the event thread, the table may be read from any thread.
+ */
+class MaterializedTable<K, V> {
+
+    private final Map<K, V> table;
+    private final Map<TopicPartition, Long> bootstrapOffsets;
+    private final MonoProcessor<Map<K, V>> ready;
+    private boolean assigned;
+
+    MaterializedTable(Map<K, V> table) {
+        this.table = table;
+        this.bootstrapOffsets = new HashMap<>();
+        this.ready = MonoProcessor.create();
+    }
+
+    void onAssign(Collection<TopicPartition> partitions, Consumer<?, ?> consumer) {
+        assigned = true;
+        if (partitions.isEmpty())
+            return;
+        consumer.seekToBeginning(partitions);
+        if (!ready.isTerminated())
+            bootstrapOffsets.putAll(consumer.endOffsets(partitions));
+    }
+
+    void onRevoke(Collection<TopicPartition> partitions) {
+        bootstrapOffsets.keySet().removeAll(partitions);
+    }
+
+    /**
+     * Updates the table with <code>records</code> and signals readiness if all partitions
+     * have been read up to their end offsets.
+     */
+    void onPoll(ConsumerRecords<K, V> records, Consumer<?, ?> consumer) {
+        for (ConsumerRecord<K, V> record : records) {
+            K key = record.key();
+            if (key == null)
+                continue;
+            V value = record.value();
+            if (value == null)
+                table.remove(key);
+            else
+                table.put(key, value);
+        }
+        if (assigned && !ready.isTerminated()) {
+            bootstrapOffsets.entrySet().removeIf(e -> consumer.position(e.getKey()) >= e.getValue());
+            if (bootstrapOffsets.isEmpty())
+                ready.onNext(Collections.unmodifiableMap(table));
+        }
+    }
+
+    /**
+     * Returns a Mono that emits a read-only view of the table when it is ready.
+     */
+    Mono<Map<K, V>> ready() {
+        return ready;
+    }
+}
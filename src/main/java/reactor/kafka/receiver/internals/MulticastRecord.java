@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+
+/**
+ * Record delivered to one of the subscribers of a multicast receive Flux. Each subscriber
+ * acknowledges its own copy of the record and the offset of the shared record is acknowledged
+ * when all subscribers have acknowledged the record.
+ */
+class MulticastRecord<K, V> extends ReceiverRecord<K, V> {
+
+    private final ReceiverRecord<K, V> record;
+
+    MulticastRecord(SharedRecord<K, V> sharedRecord) {
+        super(sharedRecord.record, null, null, new SubscriberOffset(sharedRecord));
+        this.record = sharedRecord.record;
+    }
+
+    @Override
+    public K key() {
+        return record.key();
+    }
+
+    @Override
+    public V value() {
+        return record.value();
+    }
+
+    @Override
+    public String toString() {
+        return record.toString();
+    }
+
+    /**
+     * Record shared by all subscribers with the number of subscribers that have not
+     * yet acknowledged the record.
+     */
+    static class SharedRecord<K, V> {
+        private final ReceiverRecord<K, V> record;
+        private final AtomicInteger remaining;
+        private final AtomicReference<MonoProcessor<Void>> commitProcessor;
+        private volatile boolean commitRequested;
+
+        SharedRecord(ReceiverRecord<K, V> record, int subscribers) {
+            this.record = record;
+            this.remaining = new AtomicInteger(subscribers);
+            this.commitProcessor = new AtomicReference<>();
+        }
+
+        void acknowledge() {
+            if (remaining.decrementAndGet() == 0) {
+                if (commitRequested)
+                    record.receiverOffset().commit().subscribe(commitProcessor());
+                else
+                    record.receiverOffset().acknowledge();
+            }
+        }
+
+        Mono<Void> commit() {
+            MonoProcessor<Void> processor = commitProcessor();
+            commitRequested = true;
+            acknowledge();
+            return processor;
+        }
+
+        private MonoProcessor<Void> commitProcessor() {
+            MonoProcessor<Void> processor = commitProcessor.get();
+            if (processor == null) {
+                commitProcessor.compareAndSet(null, MonoProcessor.create());
+                processor = commitProcessor.get();
+            }
+            return processor;
+        }
+    }
+
+    private static class SubscriberOffset implements ReceiverOffset {
+        private final SharedRecord<?, ?> sharedRecord;
+        private final AtomicBoolean acknowledged;
+
+        SubscriberOffset(SharedRecord<?, ?> sharedRecord) {
+            this.sharedRecord = sharedRecord;
+            this.acknowledged = new AtomicBoolean();
+        }
+
+        @Override
+        public TopicPartition topicPartition() {
+            return sharedRecord.record.receiverOffset().topicPartition();
+        }
+
+        @Override
+        public long offset() {
+            return sharedRecord.record.receiverOffset().offset();
+        }
+
+        @Override
+        public void acknowledge() {
+            if (acknowledged.compareAndSet(false, true))
+                sharedRecord.acknowledge();
+        }
+
+        @Override
+        public Mono<Void> commit() {
+            if (acknowledged.compareAndSet(false, true))
+                return sharedRecord.commit();
+            else
+                return Mono.empty();
+        }
+    }
+}
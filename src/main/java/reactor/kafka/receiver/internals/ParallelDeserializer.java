@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.ReceiverOptions;
+
+/**
+ * Deserializes records polled as byte arrays on a pool of worker threads. The records of
+ * each partition of a batch are deserialized by one task, so batches with records from many
+ * partitions are deserialized in parallel. Deserialized batches are returned by {@link #poll()}
+ * in the order in which they were submitted, so that the order of records within each partition
+ * is preserved. {@link #deserialize(ConsumerRecords, Runnable)} and {@link #poll()} are invoked
+ * on the event thread.
+ */
+class ParallelDeserializer<K, V> {
+
+    private final RecordDeserializer<K, V> recordDeserializer;
+    private final Scheduler scheduler;
+    private final Queue<PendingRecords> pending;
+
+    ParallelDeserializer(ReceiverOptions<K, V> receiverOptions, RecordDeserializer<K, V> recordDeserializer, int parallelism) {
+        this.recordDeserializer = recordDeserializer;
+        this.scheduler = Schedulers.newParallel("reactive-kafka-" + receiverOptions.groupId() + "-deserializer", parallelism);
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Schedules deserialization of <code>records</code>. <code>onComplete</code> is invoked on
+     * a worker thread when all records of the batch have been deserialized.
+     */
+    void deserialize(ConsumerRecords<byte[], byte[]> records, Runnable onComplete) {
+        PendingRecords pendingRecords = new PendingRecords(records, onComplete);
+        pending.add(pendingRecords);
+        for (TopicPartition partition : records.partitions())
+            scheduler.schedule(() -> pendingRecords.deserialize(partition));
+    }
+
+    /**
+     * Returns the next deserialized batch in submission order, or null if the next batch
+     * is not yet complete.
+     * @throws SerializationException if a record of the batch could not be deserialized
+     */
+    ConsumerRecords<K, V> poll() {
+        PendingRecords next = pending.peek();
+        if (next == null || next.remaining.get() > 0)
+            return null;
+        pending.poll();
+        if (next.error != null)
+            throw next.error;
+        return new ConsumerRecords<>(next.deserialized);
+    }
+
+    void close() {
+        pending.clear();
+        scheduler.dispose();
+    }
+
+    private class PendingRecords {
+        private final ConsumerRecords<byte[], byte[]> records;
+        private final Runnable onComplete;
+        private final Map<TopicPartition, List<ConsumerRecord<K, V>>> deserialized;
+        private final AtomicInteger remaining;
+        private volatile SerializationException error;
+
+        PendingRecords(ConsumerRecords<byte[], byte[]> records, Runnable onComplete) {
+            this.records = records;
+            this.onComplete = onComplete;
+            this.deserialized = new LinkedHashMap<>();
+            for (TopicPartition partition : records.partitions())
+                deserialized.put(partition, null);
+            this.remaining = new AtomicInteger(deserialized.size());
+        }
+
+        void deserialize(TopicPartition partition) {
+            try {
+                List<ConsumerRecord<byte[], byte[]>> partitionRecords = records.records(partition);
+                List<ConsumerRecord<K, V>> list = new ArrayList<>(partitionRecords.size());
+                for (ConsumerRecord<byte[], byte[]> record : partitionRecords)
+                    list.add(recordDeserializer.deserialize(record));
+                // Each task updates the value of a different key that is already present in the map,
+                // the update is published to the event thread by the decrement of remaining.
+                deserialized.put(partition, list);
+            } catch (SerializationException e) {
+                error = e;
+            } catch (Exception e) {
+                error = new SerializationException("Error deserializing records of partition " + partition, e);
+            }
+            if (remaining.decrementAndGet() == 0)
+                onComplete.run();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks the assignment epochs of partitions to discard records of revoked partitions that were
+ * polled but not yet delivered, and to ignore acknowledgements of records delivered before their
+ * partition was revoked. A new epoch of a partition starts each time the partition is assigned.
+ * <p>
+ * Polled records are counted against the current epoch of their partition. Since records are
+ * delivered in the order in which they were polled, records being delivered belong to the oldest
+ * epoch of the partition with undelivered records. Assignment, revocation and dispatch are
+ * invoked on the event thread, delivery and acknowledgements may be invoked from any thread.
+ */
+class PartitionEpochs {
+
+    static final long REVOKED = -1;
+
+    private final Map<TopicPartition, Deque<Epoch>> partitions;
+    private final AtomicLong lastEpoch;
+
+    PartitionEpochs() {
+        partitions = new ConcurrentHashMap<>();
+        lastEpoch = new AtomicLong();
+    }
+
+    void onAssign(Collection<TopicPartition> assigned) {
+        for (TopicPartition partition : assigned) {
+            Deque<Epoch> epochs = partitions.computeIfAbsent(partition, p -> new ConcurrentLinkedDeque<>());
+            Epoch current = epochs.peekLast();
+            if (current != null && !current.revoked)
+                continue;
+            epochs.addLast(new Epoch(lastEpoch.incrementAndGet()));
+            if (current != null && current.undelivered.get() == 0)
+                epochs.remove(current);
+        }
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            Deque<Epoch> epochs = partitions.get(partition);
+            Epoch current = epochs == null ? null : epochs.peekLast();
+            if (current != null)
+                current.revoked = true;
+        }
+    }
+
+    void onDispatch(ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            Deque<Epoch> epochs = partitions.get(partition);
+            Epoch current = epochs == null ? null : epochs.peekLast();
+            if (current == null || current.revoked) {
+                onAssign(Collections.singleton(partition));
+                current = partitions.get(partition).peekLast();
+            }
+            current.undelivered.addAndGet(records.records(partition).size());
+        }
+    }
+
+    /**
+     * Returns the records of <code>records</code> whose partitions have not been revoked since
+     * the records were polled. Partitions revoked while the returned records are being iterated
+     * are skipped from the next record onwards and the number of skipped records is passed to
+     * <code>onSkip</code>. This or {@link #liveBatch(ConsumerRecords)} must be invoked exactly once
+     * for each batch of dispatched records, in the order in which the batches were dispatched.
+     */
+    <K, V> Iterable<ConsumerRecord<K, V>> liveRecords(ConsumerRecords<K, V> records, IntConsumer onSkip) {
+        List<Epoch> batchEpochs = new ArrayList<>(records.partitions().size());
+        List<List<ConsumerRecord<K, V>>> batchRecords = new ArrayList<>(records.partitions().size());
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<K, V>> partitionRecords = records.records(partition);
+            batchEpochs.add(onDeliver(partition, partitionRecords.size()));
+            batchRecords.add(partitionRecords);
+        }
+        return () -> new LiveRecordIterator<>(batchEpochs, batchRecords, onSkip);
+    }
+
+    /**
+     * Returns a batch containing the records of <code>records</code> whose partitions have not been
+     * revoked since the records were polled.
+     * @see #liveRecords(ConsumerRecords)
+     */
+    <K, V> ConsumerRecords<K, V> liveBatch(ConsumerRecords<K, V> records) {
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> live = null;
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<K, V>> partitionRecords = records.records(partition);
+            boolean revoked = isRevoked(onDeliver(partition, partitionRecords.size()));
+            if (revoked && live == null) {
+                live = new LinkedHashMap<>();
+                for (TopicPartition p : records.partitions()) {
+                    if (p.equals(partition))
+                        break;
+                    live.put(p, records.records(p));
+                }
+            } else if (!revoked && live != null)
+                live.put(partition, partitionRecords);
+        }
+        return live == null ? records : new ConsumerRecords<>(live);
+    }
+
+    /**
+     * Returns the current epoch of <code>partition</code>, or {@link #REVOKED} if the partition
+     * is not assigned.
+     */
+    long epoch(TopicPartition partition) {
+        Deque<Epoch> epochs = partitions.get(partition);
+        Epoch current = epochs == null ? null : epochs.peekLast();
+        return current == null || current.revoked ? REVOKED : current.id;
+    }
+
+    /**
+     * Returns true if <code>partition</code> was revoked after the start of <code>epoch</code>.
+     * Partitions that were never assigned are not tracked and are never stale.
+     */
+    boolean isStale(TopicPartition partition, long epoch) {
+        if (!partitions.containsKey(partition))
+            return false;
+        return epoch == REVOKED || epoch != epoch(partition);
+    }
+
+    /**
+     * Counts delivery of <code>count</code> records of <code>partition</code> and returns the epoch
+     * in which the records were polled.
+     */
+    private Epoch onDeliver(TopicPartition partition, int count) {
+        Deque<Epoch> epochs = partitions.get(partition);
+        if (epochs == null)
+            return null;
+        Epoch oldest = epochs.peekFirst();
+        while (oldest != null && oldest.undelivered.get() == 0 && oldest != epochs.peekLast()) {
+            epochs.remove(oldest);
+            oldest = epochs.peekFirst();
+        }
+        if (oldest != null && oldest.undelivered.addAndGet(-count) <= 0 && oldest.revoked && oldest != epochs.peekLast())
+            epochs.remove(oldest);
+        return oldest;
+    }
+
+    private static boolean isRevoked(Epoch epoch) {
+        return epoch == null || epoch.revoked;
+    }
+
+    private static class Epoch {
+        private final long id;
+        private final AtomicLong undelivered;
+        private volatile boolean revoked;
+
+        Epoch(long id) {
+            this.id = id;
+            this.undelivered = new AtomicLong();
+        }
+    }
+
+    /**
+     * Iterator over the records of a batch that skips the remaining records of a partition
+     * once the partition is revoked. A record is skipped only if the partition was revoked
+     * before {@link #hasNext()} returned the record as available. Skipped records are counted
+     * once for each partition.
+     */
+    private static class LiveRecordIterator<K, V> implements Iterator<ConsumerRecord<K, V>> {
+        private final List<Epoch> epochs;
+        private final List<List<ConsumerRecord<K, V>>> records;
+        private final IntConsumer onSkip;
+        private int partitionIndex;
+        private int recordIndex;
+        private boolean available;
+
+        LiveRecordIterator(List<Epoch> epochs, List<List<ConsumerRecord<K, V>>> records, IntConsumer onSkip) {
+            this.epochs = epochs;
+            this.records = records;
+            this.onSkip = onSkip;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!available && partitionIndex < records.size()) {
+                int remaining = records.get(partitionIndex).size() - recordIndex;
+                if (remaining > 0 && !isRevoked(epochs.get(partitionIndex)))
+                    available = true;
+                else {
+                    if (remaining > 0)
+                        onSkip.accept(remaining);
+                    partitionIndex++;
+                    recordIndex = 0;
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public ConsumerRecord<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            available = false;
+            return records.get(partitionIndex).get(recordIndex++);
+        }
+    }
+}
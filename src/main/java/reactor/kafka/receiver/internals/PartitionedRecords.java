@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.reactivestreams.Subscription;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Dispatches records of each assigned partition to a separate {@link GroupedFlux}. Records
+ * are queued in a per-partition queue that is drained directly into the subscriber of the
+ * partition on a worker of the publishing scheduler, so each record is queued only once.
+ * Partitions whose queue has reached the high water mark are reported by {@link #backlogged()}
+ * so that they can be paused until the partition flux catches up. When a partition is revoked,
+ * its flux completes and records that have not yet been delivered are discarded. Assignment,
+ * revocation and dispatch are invoked on the event thread.
+ */
+class PartitionedRecords<K, V> {
+
+    private final Scheduler scheduler;
+    private final int highWaterMark;
+    private final Function<ConsumerRecord<K, V>, ReceiverRecord<K, V>> recordFactory;
+    private final UnicastProcessor<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> groups;
+    private final Map<TopicPartition, PartitionFlux<K, V>> partitions;
+
+    PartitionedRecords(Scheduler scheduler, int highWaterMark, Function<ConsumerRecord<K, V>, ReceiverRecord<K, V>> recordFactory) {
+        this.scheduler = scheduler;
+        this.highWaterMark = highWaterMark;
+        this.recordFactory = recordFactory;
+        this.groups = UnicastProcessor.create(Queues.<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>>unboundedMultiproducer().get());
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    Flux<GroupedFlux<TopicPartition, ReceiverRecord<K, V>>> groups() {
+        return groups;
+    }
+
+    void onAssign(Collection<TopicPartition> assigned) {
+        for (TopicPartition partition : assigned) {
+            if (!partitions.containsKey(partition)) {
+                PartitionFlux<K, V> partitionFlux = new PartitionFlux<>(partition, scheduler);
+                partitions.put(partition, partitionFlux);
+                groups.onNext(partitionFlux);
+            }
+        }
+    }
+
+    void onRevoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionFlux<K, V> partitionFlux = partitions.remove(partition);
+            if (partitionFlux != null)
+                partitionFlux.onRevoke();
+        }
+    }
+
+    void onNext(ConsumerRecords<K, V> records) {
+        for (TopicPartition partition : records.partitions()) {
+            PartitionFlux<K, V> partitionFlux = partitions.get(partition);
+            if (partitionFlux == null) {
+                onAssign(Collections.singleton(partition));
+                partitionFlux = partitions.get(partition);
+            }
+            for (ConsumerRecord<K, V> record : records.records(partition))
+                partitionFlux.onNext(recordFactory.apply(record));
+        }
+    }
+
+    Set<TopicPartition> backlogged() {
+        Set<TopicPartition> backlogged = new HashSet<>();
+        for (PartitionFlux<K, V> partitionFlux : partitions.values()) {
+            if (partitionFlux.queue.size() >= highWaterMark)
+                backlogged.add(partitionFlux.key());
+        }
+        return backlogged;
+    }
+
+    void onComplete() {
+        for (PartitionFlux<K, V> partitionFlux : removeAll())
+            partitionFlux.onComplete();
+        groups.onComplete();
+    }
+
+    void onError(Throwable e) {
+        for (PartitionFlux<K, V> partitionFlux : removeAll())
+            partitionFlux.onError(e);
+        groups.onError(e);
+    }
+
+    private List<PartitionFlux<K, V>> removeAll() {
+        List<PartitionFlux<K, V>> removed = new ArrayList<>(partitions.values());
+        partitions.clear();
+        return removed;
+    }
+
+    /**
+     * Flux of the records of one partition that supports a single subscriber. Records are added
+     * on the event thread and emitted on a worker of the publishing scheduler as requested.
+     */
+    private static class PartitionFlux<K, V> extends GroupedFlux<TopicPartition, ReceiverRecord<K, V>>
+            implements Subscription, Runnable {
+        private final TopicPartition partition;
+        private final Scheduler scheduler;
+        private final Queue<ReceiverRecord<K, V>> queue;
+        private final AtomicInteger wip;
+        private final AtomicLong requested;
+        private final AtomicBoolean subscribed;
+        private Scheduler.Worker worker;
+        private volatile CoreSubscriber<? super ReceiverRecord<K, V>> actual;
+        private volatile boolean done;
+        private volatile boolean revoked;
+        private volatile boolean cancelled;
+        private Throwable error;
+
+        PartitionFlux(TopicPartition partition, Scheduler scheduler) {
+            this.partition = partition;
+            this.scheduler = scheduler;
+            this.queue = Queues.<ReceiverRecord<K, V>>unbounded().get();
+            this.wip = new AtomicInteger();
+            this.requested = new AtomicLong();
+            this.subscribed = new AtomicBoolean();
+        }
+
+        @Override
+        public TopicPartition key() {
+            return partition;
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super ReceiverRecord<K, V>> actual) {
+            if (!subscribed.compareAndSet(false, true)) {
+                Operators.error(actual, new IllegalStateException("Partition flux allows only a single subscriber"));
+                return;
+            }
+            worker = scheduler.createWorker();
+            this.actual = actual;
+            actual.onSubscribe(this);
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                OperatorUtils.safeAddAndGet(requested, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void onNext(ReceiverRecord<K, V> record) {
+            queue.offer(record);
+            drain();
+        }
+
+        void onComplete() {
+            done = true;
+            drain();
+        }
+
+        void onError(Throwable e) {
+            error = e;
+            done = true;
+            drain();
+        }
+
+        /**
+         * Completes the flux, discarding records that have not yet been emitted.
+         */
+        void onRevoke() {
+            revoked = true;
+            done = true;
+            drain();
+        }
+
+        private void drain() {
+            if (actual == null)
+                return;
+            if (wip.getAndIncrement() == 0)
+                worker.schedule(this);
+        }
+
+        /**
+         * Emits queued records up to the requested count. wip is retained when the flux
+         * terminates so that the disposed worker is not scheduled again.
+         */
+        @Override
+        public void run() {
+            CoreSubscriber<? super ReceiverRecord<K, V>> a = actual;
+            int missed = 1;
+            while (true) {
+                long r = requested.get();
+                long e = 0;
+                while (true) {
+                    if (cancelled) {
+                        queue.clear();
+                        worker.dispose();
+                        return;
+                    }
+                    if (revoked)
+                        queue.clear();
+                    boolean d = done;
+                    if (d && queue.isEmpty()) {
+                        terminate(a);
+                        return;
+                    }
+                    if (e == r)
+                        break;
+                    ReceiverRecord<K, V> record = queue.poll();
+                    if (record == null)
+                        break;
+                    a.onNext(record);
+                    e++;
+                }
+                if (e != 0 && r != Long.MAX_VALUE)
+                    requested.addAndGet(-e);
+                missed = wip.addAndGet(-missed);
+                if (missed == 0)
+                    break;
+            }
+        }
+
+        private void terminate(CoreSubscriber<? super ReceiverRecord<K, V>> a) {
+            worker.dispose();
+            Throwable e = error;
+            if (e != null)
+                a.onError(e);
+            else
+                a.onComplete();
+        }
+    }
+}
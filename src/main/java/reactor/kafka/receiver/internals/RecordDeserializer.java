@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+
+import reactor.kafka.receiver.ReceiverOptions;
+
+/**
+ * Deserializes keys and values of records polled as byte arrays using the deserializers
+ * of the receiver. Deserializers configured using {@link ReceiverOptions#withKeyDeserializer(Deserializer)}
+ * and {@link ReceiverOptions#withValueDeserializer(Deserializer)} are used if provided, otherwise
+ * deserializers are created from the consumer properties.
+ */
+class RecordDeserializer<K, V> {
+
+    private final ExtendedDeserializer<K> keyDeserializer;
+    private final ExtendedDeserializer<V> valueDeserializer;
+
+    RecordDeserializer(ReceiverOptions<K, V> receiverOptions) {
+        this.keyDeserializer = ExtendedDeserializer.Wrapper.ensureExtended(deserializer(receiverOptions, true));
+        this.valueDeserializer = ExtendedDeserializer.Wrapper.ensureExtended(deserializer(receiverOptions, false));
+    }
+
+    K deserializeKey(ConsumerRecord<byte[], byte[]> record) {
+        try {
+            return keyDeserializer.deserialize(record.topic(), record.headers(), record.key());
+        } catch (RuntimeException e) {
+            throw new SerializationException("Error deserializing key for partition " + partition(record) + " at offset " + record.offset(), e);
+        }
+    }
+
+    V deserializeValue(ConsumerRecord<byte[], byte[]> record) {
+        try {
+            return valueDeserializer.deserialize(record.topic(), record.headers(), record.value());
+        } catch (RuntimeException e) {
+            throw new SerializationException("Error deserializing value for partition " + partition(record) + " at offset " + record.offset(), e);
+        }
+    }
+
+    ConsumerRecord<K, V> deserialize(ConsumerRecord<byte[], byte[]> record) {
+        return new ConsumerRecord<>(record.topic(), record.partition(), record.offset(), record.timestamp(),
+                record.timestampType(), null, record.serializedKeySize(), record.serializedValueSize(),
+                deserializeKey(record), deserializeValue(record), record.headers());
+    }
+
+    void close() {
+        keyDeserializer.close();
+        valueDeserializer.close();
+    }
+
+    private TopicPartition partition(ConsumerRecord<?, ?> record) {
+        return new TopicPartition(record.topic(), record.partition());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Deserializer<T> deserializer(ReceiverOptions<?, ?> receiverOptions, boolean isKey) {
+        Deserializer<T> deserializer = (Deserializer<T>) (isKey ? receiverOptions.keyDeserializer() : receiverOptions.valueDeserializer());
+        if (deserializer == null) {
+            ConsumerConfig config = new ConsumerConfig(receiverOptions.consumerProperties());
+            String configName = isKey ? ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG : ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
+            deserializer = config.getConfiguredInstance(configName, Deserializer.class);
+            deserializer.configure(config.originals(), isKey);
+        }
+        return deserializer;
+    }
+}
@@ -16,6 +16,7 @@
 package reactor.kafka.receiver.internals;
 
 import java.util.Collections;
+import java.util.Set;
 
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.common.TopicPartition;
@@ -26,10 +27,12 @@ class SeekablePartition implements ReceiverPartition {
 
     private final Consumer<?, ?> consumer;
     private final TopicPartition topicPartition;
+    private final Set<TopicPartition> pausedPartitions;
 
-    public SeekablePartition(Consumer<?, ?> consumer, TopicPartition topicPartition) {
+    public SeekablePartition(Consumer<?, ?> consumer, TopicPartition topicPartition, Set<TopicPartition> pausedPartitions) {
         this.consumer = consumer;
         this.topicPartition = topicPartition;
+        this.pausedPartitions = pausedPartitions;
     }
 
     @Override
@@ -57,6 +60,16 @@ class SeekablePartition implements ReceiverPartition {
         return this.consumer.position(topicPartition);
     }
 
+    @Override
+    public void pause() {
+        pausedPartitions.add(topicPartition);
+    }
+
+    @Override
+    public void resume() {
+        pausedPartitions.remove(topicPartition);
+    }
+
     @Override
     public String toString() {
         return String.valueOf(topicPartition);
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+
+import reactor.kafka.receiver.ReceiverOptions;
+
+/**
+ * Positions partitions at configured start offsets or at the offsets of a start time when
+ * they are first assigned. Offsets of all partitions positioned by time in an assignment are
+ * looked up using a single request. The set of partitions that have been positioned may be
+ * shared by the receivers of one {@link ConcurrentKafkaReceiver}, so that partitions moved
+ * between consumers by a rebalance are not positioned again. All methods are invoked on the
+ * event thread of the receiver.
+ */
+class StartPositions {
+
+    private final Instant startTime;
+    private final Map<TopicPartition, Long> startOffsets;
+    private final Set<TopicPartition> started;
+
+    StartPositions(Instant startTime, Map<TopicPartition, Long> startOffsets, Set<TopicPartition> started) {
+        this.startTime = startTime;
+        this.startOffsets = startOffsets;
+        this.started = started;
+    }
+
+    /**
+     * Returns start positions for <code>options</code> or null if no start positions are configured.
+     * @param started Thread-safe set of partitions that have already been positioned
+     */
+    static StartPositions create(ReceiverOptions<?, ?> options, Set<TopicPartition> started) {
+        Instant startTime = options.startFrom();
+        Map<TopicPartition, Long> startOffsets = options.startOffsets();
+        return startTime != null || !startOffsets.isEmpty() ? new StartPositions(startTime, startOffsets, started) : null;
+    }
+
+    void onAssign(Collection<TopicPartition> partitions, Consumer<?, ?> consumer) {
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            if (!started.add(partition))
+                continue;
+            Long offset = startOffsets.get(partition);
+            if (offset != null)
+                consumer.seek(partition, offset);
+            else if (startTime != null)
+                timestamps.put(partition, startTime.toEpochMilli());
+        }
+        if (timestamps.isEmpty())
+            return;
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        List<TopicPartition> atEnd = new ArrayList<>();
+        for (TopicPartition partition : timestamps.keySet()) {
+            OffsetAndTimestamp offset = offsets.get(partition);
+            if (offset != null)
+                consumer.seek(partition, offset.offset());
+            else
+                atEnd.add(partition);
+        }
+        if (!atEnd.isEmpty())
+            consumer.seekToEnd(atEnd);
+    }
+}
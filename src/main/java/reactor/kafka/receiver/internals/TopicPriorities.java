@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Pauses partitions of lower priority topics while partitions of higher priority topics have
+ * a backlog. A partition is considered to have a backlog if its lag reported by the
+ * <code>records-lag</code> metric of the consumer exceeds the configured threshold, so that
+ * high priority records that are consumed as they arrive don't pause lower priority partitions.
+ * All methods are invoked on the event thread.
+ */
+class TopicPriorities {
+
+    static final String LAG_METRIC = "records-lag";
+
+    private final Map<String, Integer> priorities;
+    private final long maxLag;
+    private int backlogPriority;
+
+    TopicPriorities(Map<String, Integer> priorities, long maxLag) {
+        // Fetch metrics are tagged with topic names in which '.' is replaced with '_'
+        this.priorities = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : priorities.entrySet())
+            this.priorities.put(entry.getKey().replace('.', '_'), entry.getValue());
+        this.maxLag = maxLag;
+        this.backlogPriority = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Records the highest priority of topics with a partition whose lag exceeds the threshold
+     * after a poll that was performed with downstream demand.
+     */
+    void onPoll(Map<MetricName, ? extends Metric> metrics) {
+        int highest = Integer.MIN_VALUE;
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName name = entry.getKey();
+            if (!LAG_METRIC.equals(name.name()))
+                continue;
+            String topic = name.tags().get("topic");
+            if (topic == null || name.tags().get("partition") == null)
+                continue;
+            int priority = priority(topic);
+            if (priority > highest && lag(entry.getValue()) > maxLag)
+                highest = priority;
+        }
+        backlogPriority = highest;
+    }
+
+    /**
+     * Adds the partitions of <code>assignment</code> whose topics have lower priority than
+     * a topic with backlog to <code>paused</code>.
+     */
+    void addDeprioritized(Collection<TopicPartition> assignment, Set<TopicPartition> paused) {
+        if (backlogPriority == Integer.MIN_VALUE)
+            return;
+        for (TopicPartition partition : assignment) {
+            if (priority(partition.topic().replace('.', '_')) < backlogPriority)
+                paused.add(partition);
+        }
+    }
+
+    boolean hasBacklog() {
+        return backlogPriority != Integer.MIN_VALUE;
+    }
+
+    private int priority(String metricTopic) {
+        Integer priority = priorities.get(metricTopic);
+        return priority == null ? 0 : priority;
+    }
+
+    private static double lag(Metric metric) {
+        Object value = metric.metricValue();
+        if (!(value instanceof Number))
+            return 0;
+        double lag = ((Number) value).doubleValue();
+        return Double.isNaN(lag) ? 0 : lag;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+
+import reactor.kafka.receiver.ReceiverOptions;
+
+/**
+ * Decides when a transaction of {@link DefaultKafkaReceiver#receiveExactlyOnce(reactor.kafka.sender.TransactionManager)}
+ * that spans multiple polls is closed, based on the number of records, their serialized size and
+ * the time since the first record of the transaction was polled. Batches of records are counted
+ * serially, {@link #isOpen()} may be invoked from any thread.
+ */
+class TransactionBoundary {
+
+    private final int maxRecords;
+    private final long maxBytes;
+    private final Duration maxDuration;
+    private int records;
+    private long bytes;
+    private long startNanos;
+    private volatile boolean open;
+
+    TransactionBoundary(int maxRecords, long maxBytes, Duration maxDuration) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Returns a boundary for the transaction bounds configured in <code>receiverOptions</code>,
+     * or null if no bound is configured and each poll should use its own transaction.
+     */
+    static TransactionBoundary create(ReceiverOptions<?, ?> receiverOptions) {
+        int maxRecords = receiverOptions.transactionMaxRecords();
+        long maxBytes = receiverOptions.transactionMaxBytes();
+        Duration maxDuration = receiverOptions.transactionMaxDuration();
+        if (maxRecords <= 0 && maxBytes <= 0 && maxDuration == null)
+            return null;
+        return new TransactionBoundary(maxRecords, maxBytes, maxDuration);
+    }
+
+    Duration maxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Returns true if records have been added to the current transaction that has not yet been closed.
+     */
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Adds a batch of polled records to the current transaction and returns true if the transaction
+     * should be closed after these records. An empty batch closes the transaction only if its
+     * maximum duration has elapsed.
+     */
+    boolean onRecords(ConsumerRecords<?, ?> batch) {
+        if (!batch.isEmpty()) {
+            if (!open) {
+                startNanos = System.nanoTime();
+                open = true;
+            }
+            records += batch.count();
+            if (maxBytes > 0) {
+                for (ConsumerRecord<?, ?> record : batch)
+                    bytes += Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+            }
+        }
+        boolean close = open &&
+                ((maxRecords > 0 && records >= maxRecords) ||
+                 (maxBytes > 0 && bytes >= maxBytes) ||
+                 (maxDuration != null && System.nanoTime() - startNanos >= maxDuration.toNanos()));
+        if (close) {
+            records = 0;
+            bytes = 0;
+            open = false;
+        }
+        return close;
+    }
+}
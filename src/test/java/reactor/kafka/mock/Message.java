@@ -15,16 +15,25 @@
  */
 package reactor.kafka.mock;
 
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
 public class Message {
 
     private final int key;
     private final String value;
     private final long timestamp;
+    private final Headers headers;
 
     public Message(int key, String value, Long timestamp) {
+        this(key, value, timestamp, new RecordHeaders());
+    }
+
+    public Message(int key, String value, Long timestamp, Headers headers) {
         this.key = key;
         this.value = value;
         this.timestamp = timestamp == null ? -1 : timestamp.longValue();
+        this.headers = headers;
     }
 
     public Integer key() {
@@ -39,6 +48,10 @@ public class Message {
         return timestamp;
     }
 
+    public Headers headers() {
+        return headers;
+    }
+
     public String toString() {
         return String.valueOf(key);
     }
@@ -32,6 +32,7 @@ import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.LeaderNotAvailableException;
 import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 
 public class MockCluster {
 
@@ -114,7 +115,7 @@ public class MockCluster {
         List<Message> log = log(topicPartition);
         if (log == null)
             throw new LeaderNotAvailableException("Partition not available: " + topicPartition);
-        Message message = new Message(record.key(), record.value(), record.timestamp());
+        Message message = new Message(record.key(), record.value(), record.timestamp(), new RecordHeaders(record.headers().toArray()));
         List<Message> uncommitted = uncommittedMessages.get(topicPartition);
         uncommitted.add(message);
         if (commit)
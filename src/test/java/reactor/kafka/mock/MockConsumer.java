@@ -40,6 +40,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
 import org.apache.kafka.clients.consumer.OffsetResetStrategy;
 import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.Metric;
@@ -67,6 +68,7 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
     private final Set<String> subscription;
     private final Set<TopicPartition> paused;
     private final Map<TopicPartition, Long> offsets;
+    private final Map<TopicPartition, Long> lags;
     private final Queue<KafkaException> pollExceptions;
     private final Queue<KafkaException> commitExceptions;
     private final MockCluster cluster;
@@ -75,6 +77,7 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
     private long requestLatencyMs;
     private ReceiverOptions<Integer, String> receiverOptions;
     private ConsumerRebalanceListener rebalanceCallback;
+    private volatile Collection<TopicPartition> rebalanceAssignment;
     private boolean assignmentPending = false;
     private Thread consumerThread;
 
@@ -87,6 +90,7 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
         subscription = new HashSet<>();
         paused = new HashSet<>();
         offsets = new HashMap<>();
+        lags = new HashMap<>();
         pollExceptions = new ConcurrentLinkedQueue<>();
         commitExceptions = new ConcurrentLinkedQueue<>();
         this.cluster = cluster;
@@ -113,6 +117,10 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
         return pollCount.get();
     }
 
+    public void setRequestLatencyMs(long requestLatencyMs) {
+        this.requestLatencyMs = requestLatencyMs;
+    }
+
     @Override
     public Set<TopicPartition> assignment() {
         acquire();
@@ -207,6 +215,15 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
         try {
             pollCount.incrementAndGet();
             Map<TopicPartition, List<ConsumerRecord<Integer, String>>> records = new HashMap<>();
+            Collection<TopicPartition> newAssignment = rebalanceAssignment;
+            if (newAssignment != null && !subscription.isEmpty()) {
+                rebalanceAssignment = null;
+                if (!assignmentPending)
+                    doUnAssign();
+                assignment.clear();
+                assignment.addAll(newAssignment);
+                assignmentPending = true;
+            }
             if (assignmentPending) {
                 doAssign();
                 assignmentPending = false;
@@ -232,13 +249,17 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
                     Message message = log.get((int) offset);
                     ConsumerRecord<Integer, String> record = new ConsumerRecord<Integer, String>(partition.topic(), partition.partition(), offset,
                             message.timestamp(), TimestampType.CREATE_TIME,
-                            0, 4, message.value().length(), message.key(), message.value());
+                            0L, 4, message.value() == null ? -1 : message.value().length(), message.key(), message.value(), message.headers());
                     records.get(partition).add(record);
                     offsets.put(partition, offset + 1);
                     if (++count == maxPollRecords)
                         break;
                 }
             }
+            for (TopicPartition partition : assignment) {
+                if (!paused.contains(partition))
+                    lags.put(partition, cluster.log(partition).size() - offsets.get(partition));
+            }
             return new ConsumerRecords<>(records);
         } finally {
             release();
@@ -339,6 +360,39 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
         }
     }
 
+    @Override
+    public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+        acquire();
+        try {
+            Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            for (TopicPartition partition : partitions)
+                endOffsets.put(partition, (long) cluster.log(partition).size());
+            return endOffsets;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch) {
+        acquire();
+        try {
+            Map<TopicPartition, OffsetAndTimestamp> offsets = new HashMap<>();
+            for (Map.Entry<TopicPartition, Long> entry : timestampsToSearch.entrySet()) {
+                List<Message> log = cluster.log(entry.getKey());
+                OffsetAndTimestamp offset = null;
+                for (int i = 0; i < log.size() && offset == null; i++) {
+                    if (log.get(i).timestamp() >= entry.getValue())
+                        offset = new OffsetAndTimestamp(i, log.get(i).timestamp());
+                }
+                offsets.put(entry.getKey(), offset);
+            }
+            return offsets;
+        } finally {
+            release();
+        }
+    }
+
     @Override
     public OffsetAndMetadata committed(TopicPartition partition) {
         acquire();
@@ -350,9 +404,46 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
         }
     }
 
+    /**
+     * Returns the <code>records-lag</code> metrics of assigned partitions, recorded when
+     * the partitions were last fetched.
+     */
     @Override
     public Map<MetricName, ? extends Metric> metrics() {
-        return new HashMap<>();
+        acquire();
+        try {
+            Map<MetricName, Metric> metrics = new HashMap<>();
+            for (Map.Entry<TopicPartition, Long> entry : lags.entrySet()) {
+                TopicPartition partition = entry.getKey();
+                if (!assignment.contains(partition))
+                    continue;
+                Map<String, String> tags = new HashMap<>();
+                tags.put("topic", partition.topic().replace('.', '_'));
+                tags.put("partition", String.valueOf(partition.partition()));
+                MetricName name = new MetricName("records-lag", "consumer-fetch-manager-metrics", "", tags);
+                double lag = entry.getValue();
+                metrics.put(name, new Metric() {
+                    @Override
+                    public MetricName metricName() {
+                        return name;
+                    }
+
+                    @Override
+                    @Deprecated
+                    public double value() {
+                        return lag;
+                    }
+
+                    @Override
+                    public Object metricValue() {
+                        return lag;
+                    }
+                });
+            }
+            return metrics;
+        } finally {
+            release();
+        }
     }
 
     @Override
@@ -428,6 +519,14 @@ public class MockConsumer extends org.apache.kafka.clients.consumer.MockConsumer
     public void wakeup() {
     }
 
+    /**
+     * Replaces the partitions assigned to this consumer on the next poll, as if partitions were
+     * redistributed within the consumer group. Rebalance callbacks are invoked as for a real consumer.
+     */
+    public void rebalance(Collection<TopicPartition> partitions) {
+        rebalanceAssignment = new ArrayList<>(partitions);
+    }
+
     private void doAssign() {
         if (assignment.size() > 0 && rebalanceCallback != null)
             rebalanceCallback.onPartitionsAssigned(assignment);
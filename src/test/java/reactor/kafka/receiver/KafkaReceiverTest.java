@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -34,12 +35,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -106,6 +110,91 @@ public class KafkaReceiverTest extends AbstractKafkaTest {
         sendReceive(kafkaFlux, 0, 100, 0, 100);
     }
 
+    @Test
+    public void parallelDeserialization() throws Exception {
+        Set<String> deserializerThreads = ConcurrentHashMap.newKeySet();
+        receiverOptions = receiverOptions
+                .deserializationParallelism(4)
+                .withValueDeserializer(new StringDeserializer() {
+                    @Override
+                    public String deserialize(String topic, byte[] data) {
+                        deserializerThreads.add(Thread.currentThread().getName());
+                        return super.deserialize(topic, data);
+                    }
+                });
+        Flux<? extends ConsumerRecord<Integer, String>> kafkaFlux = createReceiver()
+                .receive();
+        sendReceive(kafkaFlux, 0, 100, 0, 100);
+        assertFalse("No records deserialized", deserializerThreads.isEmpty());
+        for (String thread : deserializerThreads)
+            assertTrue("Unexpected deserializer thread " + thread, thread.contains("-deserializer"));
+    }
+
+    @Test
+    public void parallelDeserializationFailure() throws Exception {
+        receiverOptions = receiverOptions
+                .deserializationParallelism(2)
+                .withValueDeserializer(new StringDeserializer() {
+                    @Override
+                    public String deserialize(String topic, byte[] data) {
+                        String value = super.deserialize(topic, data);
+                        if (value.equals("Message 5"))
+                            throw new IllegalArgumentException("Test exception");
+                        return value;
+                    }
+                });
+        Flux<? extends ConsumerRecord<Integer, String>> kafkaFlux = createReceiver()
+                .receive();
+        sendMessages(0, 10);
+        StepVerifier.create(kafkaFlux)
+                .thenConsumeWhile(r -> true)
+                .expectError(SerializationException.class)
+                .verify(Duration.ofMillis(receiveTimeoutMillis));
+    }
+
+    @Test
+    public void lazyDeserialization() throws Exception {
+        AtomicInteger deserializedValues = new AtomicInteger();
+        receiverOptions = receiverOptions
+                .lazyDeserialization(true)
+                .withValueDeserializer(new StringDeserializer() {
+                    @Override
+                    public String deserialize(String topic, byte[] data) {
+                        deserializedValues.incrementAndGet();
+                        return super.deserialize(topic, data);
+                    }
+                });
+        Flux<? extends ConsumerRecord<Integer, String>> kafkaFlux = createReceiver()
+                .receive()
+                .filter(r -> r.key() % 2 == 0)
+                .doOnNext(r -> assertEquals("Message " + r.key(), r.value()));
+        CountDownLatch latch = new CountDownLatch(50);
+        subscribe(kafkaFlux, latch);
+        sendMessages(0, 100);
+        waitForMessages(latch);
+        assertEquals(50, deserializedValues.get());
+    }
+
+    @Test
+    public void concurrency() throws Exception {
+        List<Collection<TopicPartition>> assignments = new CopyOnWriteArrayList<>();
+        receiverOptions = receiverOptions
+                .concurrency(2)
+                .consumerProperty(ConsumerConfig.CLIENT_ID_CONFIG, "concurrent")
+                .addAssignListener(partitions -> assignments.add(partitions.stream()
+                        .map(ReceiverPartition::topicPartition)
+                        .collect(Collectors.toSet())));
+        KafkaReceiver<Integer, String> receiver = createReceiver();
+        CountDownLatch latch = new CountDownLatch(100);
+        subscribe(receiver.receive(), latch);
+        TestUtils.waitUntil("Partitions not distributed across consumers", () -> assignments,
+            list -> list.stream().filter(p -> p.size() < partitions).count() >= 2,
+            assignments, Duration.ofMillis(sessionTimeoutMillis + 5000));
+        sendMessages(0, 100);
+        waitForMessages(latch);
+        checkConsumedMessages(0, 100);
+    }
+
     @Test
     public void sendReceiveWithHeaders() throws Exception {
         int count = 10;
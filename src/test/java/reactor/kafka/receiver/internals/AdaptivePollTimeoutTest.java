@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptivePollTimeoutTest {
+
+    @Test
+    public void growsWhenIdle() {
+        AdaptivePollTimeout timeout = new AdaptivePollTimeout(Duration.ofMillis(10), Duration.ofMillis(100));
+        assertEquals(Duration.ofMillis(10), timeout.current());
+        assertTrue(timeout.onPoll(0, true, false));
+        assertEquals(Duration.ofMillis(20), timeout.current());
+        timeout.onPoll(5, false, false);
+        assertEquals(Duration.ofMillis(40), timeout.current());
+        timeout.onPoll(0, true, false);
+        timeout.onPoll(0, true, false);
+        assertEquals(Duration.ofMillis(100), timeout.current());
+        assertFalse(timeout.onPoll(0, true, false));
+    }
+
+    @Test
+    public void shrinksWhenActive() {
+        AdaptivePollTimeout timeout = new AdaptivePollTimeout(Duration.ofMillis(10), Duration.ofMillis(100));
+        for (int i = 0; i < 5; i++)
+            timeout.onPoll(0, false, false);
+        assertEquals(Duration.ofMillis(100), timeout.current());
+        timeout.onPoll(10, true, false);
+        assertEquals(Duration.ofMillis(50), timeout.current());
+        timeout.onPoll(0, false, true);
+        assertEquals(Duration.ofMillis(25), timeout.current());
+        timeout.onPoll(10, true, false);
+        timeout.onPoll(10, true, false);
+        assertEquals(Duration.ofMillis(10), timeout.current());
+        assertFalse(timeout.onPoll(10, true, false));
+    }
+
+    @Test
+    public void zeroMinTimeout() {
+        AdaptivePollTimeout timeout = new AdaptivePollTimeout(Duration.ZERO, Duration.ofMillis(8));
+        assertEquals(Duration.ZERO, timeout.current());
+        timeout.onPoll(0, true, false);
+        assertEquals(Duration.ofMillis(2), timeout.current());
+        timeout.onPoll(0, true, false);
+        timeout.onPoll(0, true, false);
+        assertEquals(Duration.ofMillis(8), timeout.current());
+    }
+}
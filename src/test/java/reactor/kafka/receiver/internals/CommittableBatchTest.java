@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.kafka.receiver.internals.CommittableBatch.CommitArgs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommittableBatchTest {
+
+    private final TopicPartition partition0 = new TopicPartition("topic", 0);
+    private final TopicPartition partition1 = new TopicPartition("topic", 1);
+
+    @Test
+    public void updateAndCommit() {
+        CommittableBatch batch = new CommittableBatch();
+        assertEquals(1, batch.updateOffset(partition0, 5));
+        assertEquals(1, batch.updateOffset(partition0, 3));
+        assertEquals(2, batch.updateOffset(partition1, 1));
+        CommitArgs commitArgs = batch.getAndClearOffsets();
+        assertEquals(6, commitArgs.offsets().get(partition0).offset());
+        assertEquals(2, commitArgs.offsets().get(partition1).offset());
+        assertTrue(batch.isEmpty());
+        assertTrue(batch.getAndClearOffsets().offsets().isEmpty());
+
+        batch.updateOffset(partition1, 4);
+        assertEquals(Collections.singletonMap(partition1, new OffsetAndMetadata(5)), batch.getAndClearOffsets().offsets());
+    }
+
+    @Test
+    public void restoreOffsets() {
+        CommittableBatch batch = new CommittableBatch();
+        batch.updateOffset(partition0, 5);
+        batch.updateOffset(partition1, 5);
+        CommitArgs failed = batch.getAndClearOffsets();
+        batch.updateOffset(partition1, 8);
+        batch.restoreOffsets(failed, false);
+        Map<TopicPartition, OffsetAndMetadata> expected = new HashMap<>();
+        expected.put(partition0, new OffsetAndMetadata(6));
+        expected.put(partition1, new OffsetAndMetadata(9));
+        assertEquals(expected, batch.getAndClearOffsets().offsets());
+    }
+
+    @Test
+    public void resetOffset() {
+        CommittableBatch batch = new CommittableBatch();
+        batch.updateOffset(partition0, 10);
+        batch.getAndClearOffsets();
+        batch.resetOffset(partition0, 4);
+        assertEquals(Collections.singletonMap(partition0, new OffsetAndMetadata(5)), batch.getAndClearOffsets().offsets());
+    }
+
+    @Test
+    public void concurrentUpdates() throws Exception {
+        int threads = 8;
+        int offsetsPerThread = 10000;
+        CommittableBatch batch = new CommittableBatch();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        Map<TopicPartition, Long> committed = new HashMap<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                executor.execute(() -> {
+                    for (int j = 0; j < offsetsPerThread; j++)
+                        batch.updateOffset(thread % 2 == 0 ? partition0 : partition1, (long) j * threads + thread);
+                    latch.countDown();
+                });
+            }
+            while (latch.getCount() > 0)
+                commit(batch, committed);
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            commit(batch, committed);
+        } finally {
+            executor.shutdownNow();
+        }
+        long max = (long) offsetsPerThread * threads;
+        assertEquals(max - 2 + 1, committed.get(partition0).longValue());
+        assertEquals(max - 1 + 1, committed.get(partition1).longValue());
+    }
+
+    @Test
+    public void concurrentCommits() throws Exception {
+        int threads = 8;
+        int commitsPerThread = 10000;
+        CommittableBatch batch = new CommittableBatch();
+        Map<MonoSink<Void>, Long> emitterOffsets = new ConcurrentHashMap<>();
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        Map<TopicPartition, Long> committed = new HashMap<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                executor.execute(() -> {
+                    for (int j = 0; j < commitsPerThread; j++) {
+                        long offset = (long) j * threads + thread;
+                        Mono.<Void>create(emitter -> {
+                            batch.updateOffset(partition0, offset);
+                            emitterOffsets.put(emitter, offset);
+                            batch.addCallbackEmitter(emitter);
+                        }).subscribe(null, null, completed::incrementAndGet);
+                    }
+                    latch.countDown();
+                });
+            }
+            while (latch.getCount() > 0 || completed.get() < threads * commitsPerThread) {
+                CommitArgs commitArgs = batch.getAndClearOffsets();
+                OffsetAndMetadata offset = commitArgs.offsets().get(partition0);
+                if (offset != null)
+                    committed.put(partition0, offset.offset());
+                if (commitArgs.callbackEmitters() != null) {
+                    for (MonoSink<Void> emitter : commitArgs.callbackEmitters()) {
+                        long emitterOffset = emitterOffsets.remove(emitter);
+                        assertTrue("Commit completed without offset " + emitterOffset, committed.getOrDefault(partition0, -1L) > emitterOffset);
+                        emitter.success();
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * commitsPerThread, completed.get());
+    }
+
+    private void commit(CommittableBatch batch, Map<TopicPartition, Long> committed) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : batch.getAndClearOffsets().offsets().entrySet()) {
+            Long previous = committed.put(entry.getKey(), entry.getValue().offset());
+            assertTrue("Offset committed out of order", previous == null || previous < entry.getValue().offset());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredCommitsTest {
+
+    private final TopicPartition partition = new TopicPartition("topic", 0);
+
+    @Test
+    public void inOrderAcknowledgements() {
+        DeferredCommits deferredCommits = new DeferredCommits(10);
+        deferredCommits.onDispatch(records(0, 1, 2, 3));
+        for (long offset = 0; offset < 4; offset++)
+            assertEquals(offset, deferredCommits.acknowledge(partition, offset));
+        assertEquals(0, deferredCommits.deferredCount(partition));
+    }
+
+    @Test
+    public void outOfOrderAcknowledgements() {
+        DeferredCommits deferredCommits = new DeferredCommits(2);
+        deferredCommits.onDispatch(records(10, 11, 12, 13));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 12));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 11));
+        assertEquals(2, deferredCommits.deferredCount(partition));
+        assertEquals(Collections.singleton(partition), deferredCommits.saturatedPartitions());
+        assertEquals(-1, deferredCommits.acknowledge(partition, 12));
+        assertEquals(12, deferredCommits.acknowledge(partition, 10));
+        assertTrue(deferredCommits.saturatedPartitions().isEmpty());
+        assertEquals(13, deferredCommits.acknowledge(partition, 13));
+    }
+
+    @Test
+    public void offsetGaps() {
+        DeferredCommits deferredCommits = new DeferredCommits(10);
+        deferredCommits.onDispatch(records(5, 8, 20));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 20));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 6));
+        assertEquals(5, deferredCommits.acknowledge(partition, 5));
+        assertEquals(20, deferredCommits.acknowledge(partition, 8));
+    }
+
+    @Test
+    public void ringGrowsAndWraps() {
+        DeferredCommits deferredCommits = new DeferredCommits(1000);
+        long next = 0;
+        for (int batch = 0; batch < 10; batch++) {
+            long[] offsets = new long[100];
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] = next++;
+            deferredCommits.onDispatch(records(offsets));
+            // Acknowledge all but the first record of the batch in reverse order
+            for (int i = offsets.length - 1; i > 0; i--)
+                assertEquals(-1, deferredCommits.acknowledge(partition, offsets[i]));
+            assertEquals(offsets[offsets.length - 1], deferredCommits.acknowledge(partition, offsets[0]));
+        }
+        deferredCommits.onDispatch(records(next, next + 1));
+        assertEquals(-1, deferredCommits.acknowledge(partition, next + 1));
+        assertEquals(next + 1, deferredCommits.acknowledge(partition, next));
+    }
+
+    @Test
+    public void seekResetsPartition() {
+        DeferredCommits deferredCommits = new DeferredCommits(10);
+        deferredCommits.onDispatch(records(0, 1, 2));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 1));
+        deferredCommits.onDispatch(records(0, 1));
+        assertEquals(0, deferredCommits.deferredCount(partition));
+        assertEquals(0, deferredCommits.acknowledge(partition, 0));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 2));
+    }
+
+    @Test
+    public void revokedPartition() {
+        DeferredCommits deferredCommits = new DeferredCommits(10);
+        deferredCommits.onDispatch(records(0, 1));
+        deferredCommits.onRevoke(Collections.singleton(partition));
+        assertEquals(-1, deferredCommits.acknowledge(partition, 0));
+    }
+
+    private ConsumerRecords<Integer, String> records(long... offsets) {
+        List<ConsumerRecord<Integer, String>> list = new ArrayList<>();
+        for (long offset : offsets)
+            list.add(new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null, "value"));
+        return new ConsumerRecords<>(Collections.singletonMap(partition, list));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopTest {
+
+    private final KafkaSchedulers.EventScheduler scheduler = KafkaSchedulers.newEvent("test");
+
+    @After
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void eventsFromMultipleThreads() throws Exception {
+        int threads = 4;
+        int eventsPerThread = 10000;
+        CountDownLatch latch = new CountDownLatch(threads * eventsPerThread);
+        AtomicBoolean wrongThread = new AtomicBoolean();
+        List<Integer> executed = new ArrayList<>();
+        EventLoop<Integer> eventLoop = new EventLoop<>(scheduler, event -> {
+            if (!scheduler.isCurrentThreadFromScheduler())
+                wrongThread.set(true);
+            executed.add(event);
+            latch.countDown();
+        });
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            new Thread(() -> {
+                for (int j = 0; j < eventsPerThread; j++)
+                    eventLoop.submit(thread * eventsPerThread + j);
+            }).start();
+        }
+        assertTrue("Events not executed", latch.await(10, TimeUnit.SECONDS));
+        assertEquals(threads * eventsPerThread, executed.size());
+        assertTrue("Events executed on wrong thread", !wrongThread.get());
+        int[] last = new int[threads];
+        for (int event : executed) {
+            int thread = event / eventsPerThread;
+            assertTrue("Events from a thread executed out of order", event >= last[thread]);
+            last[thread] = event;
+        }
+    }
+
+    @Test
+    public void periodicEventNotDelayedBySelfSubmittingEvents() throws Exception {
+        CountDownLatch periodicLatch = new CountDownLatch(3);
+        AtomicInteger count = new AtomicInteger();
+        EventLoop<Runnable> eventLoop = new EventLoop<>(scheduler, Runnable::run);
+        Runnable busyEvent = new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                if (periodicLatch.getCount() > 0)
+                    eventLoop.submit(this);
+            }
+        };
+        eventLoop.submit(busyEvent);
+        eventLoop.schedulePeriodically(() -> periodicLatch::countDown, Duration.ofMillis(10));
+        assertTrue("Periodic event not executed", periodicLatch.await(10, TimeUnit.SECONDS));
+        assertTrue("Events not executed", count.get() > EventLoop.MAX_DRAIN_COUNT);
+    }
+
+    @Test
+    public void dispose() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger();
+        EventLoop<Runnable> eventLoop = new EventLoop<>(scheduler, Runnable::run);
+        eventLoop.submit(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        eventLoop.submit(count::incrementAndGet);
+        eventLoop.dispose();
+        latch.countDown();
+        eventLoop.submit(count::incrementAndGet);
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.schedule(done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(eventLoop.isDisposed());
+        assertEquals(0, count.get());
+    }
+}
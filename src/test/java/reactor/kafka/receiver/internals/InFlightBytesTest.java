@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InFlightBytesTest {
+
+    private final TopicPartition partition = new TopicPartition("topic", 0);
+
+    @Test
+    public void acknowledgeReleasesEarlierRecords() {
+        InFlightBytes inFlightBytes = new InFlightBytes(100);
+        inFlightBytes.onDispatch(records(0, 40, 1, 40, 2, 40));
+        assertEquals(120, inFlightBytes.inFlightBytes());
+        assertTrue(inFlightBytes.isExhausted());
+        inFlightBytes.onAcknowledge(partition, 1);
+        assertEquals(40, inFlightBytes.inFlightBytes());
+        assertFalse(inFlightBytes.isExhausted());
+        inFlightBytes.onAcknowledge(partition, 0);
+        assertEquals(40, inFlightBytes.inFlightBytes());
+        inFlightBytes.onAcknowledge(partition, 2);
+        assertEquals(0, inFlightBytes.inFlightBytes());
+    }
+
+    @Test
+    public void seekReleasesRedeliveredRecords() {
+        InFlightBytes inFlightBytes = new InFlightBytes(100);
+        inFlightBytes.onDispatch(records(5, 10, 6, 10));
+        inFlightBytes.onDispatch(records(5, 10, 6, 10, 7, 10));
+        assertEquals(30, inFlightBytes.inFlightBytes());
+        inFlightBytes.onAcknowledge(partition, 7);
+        assertEquals(0, inFlightBytes.inFlightBytes());
+    }
+
+    @Test
+    public void revokedPartition() {
+        InFlightBytes inFlightBytes = new InFlightBytes(100);
+        inFlightBytes.onDispatch(records(0, 200));
+        assertTrue(inFlightBytes.isExhausted());
+        inFlightBytes.onRevoke(Collections.singleton(partition));
+        assertEquals(0, inFlightBytes.inFlightBytes());
+        inFlightBytes.onAcknowledge(partition, 0);
+        assertEquals(0, inFlightBytes.inFlightBytes());
+    }
+
+    /**
+     * Returns records for the partition from pairs of offset and value size.
+     */
+    private ConsumerRecords<Integer, String> records(long... offsetsAndSizes) {
+        List<ConsumerRecord<Integer, String>> list = new ArrayList<>();
+        for (int i = 0; i < offsetsAndSizes.length; i += 2) {
+            list.add(new ConsumerRecord<>(partition.topic(), partition.partition(), offsetsAndSizes[i],
+                    0, TimestampType.CREATE_TIME, 0L, -1, (int) offsetsAndSizes[i + 1], null, "value"));
+        }
+        return new ConsumerRecords<>(Collections.singletonMap(partition, list));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.Test;
+
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LazyConsumerRecordTest {
+
+    private final TopicPartition partition = new TopicPartition("topic", 0);
+    private final AtomicInteger deserializedValues = new AtomicInteger();
+
+    @Test
+    public void deserializeOnFirstAccess() {
+        ConsumerRecord<Integer, String> record = lazyRecords(1, "value").records(partition).get(0);
+        assertEquals(0, deserializedValues.get());
+        assertEquals(Integer.valueOf(1), record.key());
+        assertEquals(0, deserializedValues.get());
+        assertEquals("value", record.value());
+        assertEquals("value", record.value());
+        assertEquals(1, deserializedValues.get());
+
+        ReceiverRecord<Integer, String> receiverRecord = new LazyConsumerRecord.LazyReceiverRecord<>((LazyConsumerRecord<Integer, String>) record, null);
+        assertEquals("value", receiverRecord.value());
+        assertEquals(1, deserializedValues.get());
+        assertEquals(0, receiverRecord.offset());
+    }
+
+    @Test
+    public void deserializationFailure() {
+        ConsumerRecord<Integer, String> record = lazyRecords(1, "fail").records(partition).get(0);
+        assertEquals(Integer.valueOf(1), record.key());
+        try {
+            record.value();
+            fail("Deserialization did not fail");
+        } catch (SerializationException e) {
+            // expected
+        }
+    }
+
+    private ConsumerRecords<Integer, String> lazyRecords(int key, String value) {
+        ReceiverOptions<Integer, String> receiverOptions = ReceiverOptions.<Integer, String>create()
+                .withKeyDeserializer(new IntegerDeserializer())
+                .withValueDeserializer(new StringDeserializer() {
+                    @Override
+                    public String deserialize(String topic, byte[] data) {
+                        deserializedValues.incrementAndGet();
+                        String value = super.deserialize(topic, data);
+                        if (value.equals("fail"))
+                            throw new IllegalArgumentException("Test exception");
+                        return value;
+                    }
+                });
+        byte[] keyBytes = new IntegerSerializer().serialize(partition.topic(), key);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        ConsumerRecord<byte[], byte[]> rawRecord = new ConsumerRecord<>(partition.topic(), partition.partition(), 0, keyBytes, valueBytes);
+        ConsumerRecords<byte[], byte[]> rawRecords = new ConsumerRecords<>(Collections.singletonMap(partition, Collections.singletonList(rawRecord)));
+        return LazyConsumerRecord.lazyRecords(rawRecords, new RecordDeserializer<>(receiverOptions));
+    }
+}
@@ -17,7 +17,11 @@ package reactor.kafka.receiver.internals;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -48,6 +52,8 @@ import java.util.regex.Pattern;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -59,15 +65,24 @@ import org.junit.Test;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import reactor.kafka.mock.Message;
 import reactor.kafka.mock.MockCluster;
 import reactor.kafka.mock.MockConsumer;
+import reactor.kafka.mock.MockProducer;
 import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.MappedFileOffsetStore;
+import reactor.kafka.receiver.ReceiverMetrics;
 import reactor.kafka.receiver.ReceiverOffset;
 import reactor.kafka.receiver.ReceiverOptions;
 import reactor.kafka.receiver.ReceiverPartition;
 import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.receiver.RetryTopics;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.internals.DefaultKafkaSender;
 import reactor.kafka.util.TestUtils;
 import reactor.test.StepVerifier;
 import reactor.test.StepVerifier.Step;
@@ -438,6 +453,39 @@ public class MockReceiverTest {
 
     }
 
+    /**
+     * Tests that {@link KafkaReceiver#receiveAtmostOnce()} with commit-ahead issues one commit
+     * for every half of the commit-ahead size rather than one commit for each record.
+     */
+    @Test
+    public void atmostOnceCommitAheadPipelined() {
+        int commitAhead = 10;
+        int count = 100;
+        AtomicInteger commits = new AtomicInteger();
+        MockConsumer commitCountingConsumer = new MockConsumer(cluster) {
+            @Override
+            public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+                commits.incrementAndGet();
+                super.commitAsync(offsets, callback);
+            }
+        };
+        consumerFactory = new MockConsumer.Pool(Arrays.asList(commitCountingConsumer));
+        String topic = topics.get(1);
+        receiverOptions = receiverOptions
+                .atmostOnceCommitAheadSize(commitAhead)
+                .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, count);
+        Flux<ConsumerRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receiveAtmostOnce()
+                .filter(r -> cluster.committedOffset(groupId, topicPartition(r)) >= r.offset());
+        StepVerifier.create(inboundFlux.take(count))
+            .expectNextCount(count)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        int maxCommits = count / (commitAhead / 2) + 2;
+        assertTrue("Too many commits " + commits.get(), commits.get() <= maxCommits);
+    }
+
     /**
      * Tests that transient commit failures are retried with {@link KafkaReceiver#receiveAtmostOnce()}.
      */
@@ -620,6 +668,39 @@ public class MockReceiverTest {
         }
     }
 
+    /**
+     * Tests that only offsets up to the first unacknowledged record of each partition are
+     * committed when records are acknowledged out of order.
+     */
+    @Test
+    public void manualAckOutOfOrder() {
+        receiverOptions = receiverOptions
+                .maxDeferredCommits(100)
+                .commitBatchSize(0)
+                .commitInterval(Duration.ofMillis(Long.MAX_VALUE))
+                .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        TopicPartition gapPartition = new TopicPartition(topic, 0);
+        long gapOffset = 3;
+        List<ReceiverRecord<Integer, String>> received = new CopyOnWriteArrayList<>();
+        StepVerifier.create(new DefaultKafkaReceiver<>(consumerFactory, receiverOptions).receive())
+            .recordWith(() -> received)
+            .expectNextCount(20)
+            .then(() -> {
+                for (int i = received.size() - 1; i >= 0; i--) {
+                    ReceiverOffset offset = received.get(i).receiverOffset();
+                    if (!offset.topicPartition().equals(gapPartition) || offset.offset() != gapOffset)
+                        offset.acknowledge();
+                }
+            })
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        for (TopicPartition partition : cluster.partitions(topic)) {
+            long expected = partition.equals(gapPartition) ? gapOffset : 10;
+            assertEquals(expected, cluster.committedOffset(groupId, partition).longValue());
+        }
+    }
+
     /**
      * Tests that acknowledged offsets are committed using the configured batch size.
      */
@@ -835,6 +916,24 @@ public class MockReceiverTest {
         verifyCommits(groupId, topic, 10);
     }
 
+    /**
+     * Tests that offsets of batches returned by {@link KafkaReceiver#receiveBatch()} are
+     * committed when the batch is committed.
+     */
+    @Test
+    public void receiveBatchCommit() throws Exception {
+        receiverOptions = receiverOptions
+                .commitBatchSize(0)
+                .commitInterval(Duration.ofMillis(Long.MAX_VALUE))
+                .subscription(Collections.singletonList(topic));
+        sendMessages(topic, 0, 20);
+        Flux<ConsumerRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receiveBatch()
+                .concatMap(batch -> batch.commit().thenMany(Flux.fromIterable(batch)));
+        verifyMessages(inboundFlux.take(10), 10);
+        verifyCommits(groupId, topic, 10);
+    }
+
     /**
      * Tests that offsets that are not committed explicitly are not committed
      * on close and that uncommitted records are redelivered on the next receive.
@@ -1196,6 +1295,14 @@ public class MockReceiverTest {
         testBackPressure(flux);
     }
 
+    @Test
+    public void backPressureReceiveBatch() throws Exception {
+        receiverOptions = receiverOptions.consumerProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "1")
+            .subscription(Collections.singleton(topic));
+        Flux<?> flux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions).receiveBatch();
+        testBackPressure(flux);
+    }
+
     private void testBackPressure(Flux<?> flux) throws Exception {
         int count = 5;
         sendMessages(topic, 0, count);
@@ -1212,13 +1319,893 @@ public class MockReceiverTest {
         step.expectNextCount(1).expectComplete().verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
     }
 
+    /**
+     * Tests that a partition with too many unacknowledged records is paused without
+     * blocking delivery from other partitions and is resumed when records are acknowledged.
+     */
+    @Test
+    public void maxInFlightPerPartition() throws Exception {
+        int maxInFlight = 2;
+        receiverOptions = receiverOptions.maxInFlightPerPartition(maxInFlight)
+            .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        TopicPartition slowPartition = new TopicPartition(topic, 0);
+        AtomicBoolean slow = new AtomicBoolean(true);
+        List<ReceiverOffset> unacknowledged = new CopyOnWriteArrayList<>();
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver
+                .receive()
+                .doOnNext(r -> {
+                    if (slow.get() && r.receiverOffset().topicPartition().equals(slowPartition))
+                        unacknowledged.add(r.receiverOffset());
+                    else
+                        r.receiverOffset().acknowledge();
+                });
+        StepVerifier.create(inboundFlux.take(20))
+            .recordWith(this::receivedRecords)
+            .expectNextCount(10 + maxInFlight)
+            .expectNoEvent(Duration.ofMillis(200))
+            .then(() -> {
+                assertEquals(maxInFlight, unacknowledged.size());
+                Set<TopicPartition> paused = receiver.doOnConsumer(c -> c.paused()).block(Duration.ofSeconds(1));
+                assertEquals(Collections.singleton(slowPartition), paused);
+                slow.set(false);
+                unacknowledged.forEach(ReceiverOffset::acknowledge);
+            })
+            .expectNextCount(10 - maxInFlight)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        verifyMessages(20);
+    }
+
+    /**
+     * Tests that all partitions are paused when the size of unacknowledged records reaches
+     * the configured maximum and resumed when records are acknowledged.
+     */
+    @Test
+    public void maxBufferedBytes() throws Exception {
+        int maxBufferedBytes = 50;
+        receiverOptions = receiverOptions.maxBufferedBytes(maxBufferedBytes)
+            .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        int partitions = cluster.partitions(topic).size();
+        AtomicBoolean hold = new AtomicBoolean(true);
+        List<ReceiverOffset> unacknowledged = new CopyOnWriteArrayList<>();
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver
+                .receive()
+                .doOnNext(r -> {
+                    if (hold.get())
+                        unacknowledged.add(r.receiverOffset());
+                    else
+                        r.receiverOffset().acknowledge();
+                });
+        StepVerifier.create(inboundFlux.take(20))
+            .recordWith(this::receivedRecords)
+            .expectNextCount(4)
+            .thenAwait(Duration.ofMillis(200))
+            .then(() -> {
+                assertTrue("Too many records received " + unacknowledged.size(), unacknowledged.size() < 4 + partitions);
+                Set<TopicPartition> paused = receiver.doOnConsumer(c -> c.paused()).block(Duration.ofSeconds(1));
+                assertEquals(new HashSet<>(cluster.partitions(topic)), paused);
+                hold.set(false);
+                unacknowledged.forEach(ReceiverOffset::acknowledge);
+            })
+            .thenConsumeWhile(r -> true)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        verifyMessages(20);
+    }
+
+    /**
+     * Tests that poll timeout adapts between the minimum and maximum poll timeouts and
+     * that the current timeout is reported by receiver gauges.
+     */
+    @Test
+    public void adaptivePollTimeout() {
+        Duration minPollTimeout = Duration.ofMillis(1);
+        Duration maxPollTimeout = Duration.ofMillis(100);
+        AtomicReference<ReceiverMetrics.Gauges> boundGauges = new AtomicReference<>();
+        receiverOptions = receiverOptions.pollTimeout(maxPollTimeout)
+            .minPollTimeout(minPollTimeout)
+            .metrics(new ReceiverMetrics() {
+                @Override
+                public void bind(Gauges gauges) {
+                    boundGauges.set(gauges);
+                }
+            })
+            .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        StepVerifier.create(receiver.receive())
+            .expectNextCount(20)
+            .then(() -> TestUtils.waitUntil("Poll timeout not increased", () -> boundGauges.get().pollTimeout(),
+                g -> g.pollTimeout().equals(maxPollTimeout), boundGauges.get(), Duration.ofSeconds(5)))
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+    }
+
+    /**
+     * Tests that records are delivered on a separate Flux for each assigned partition.
+     */
+    @Test
+    public void receivePartitioned() {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Set<TopicPartition> partitions = new CopyOnWriteArraySet<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receivePartitioned()
+                .doOnNext(partitionFlux -> partitions.add(partitionFlux.key()))
+                .flatMap(partitionFlux -> partitionFlux
+                        .doOnNext(r -> assertEquals(partitionFlux.key(), r.receiverOffset().topicPartition())));
+        receiveAndVerify(inboundFlux, 20);
+        assertEquals(new HashSet<>(cluster.partitions(topic)), partitions);
+    }
+
+    /**
+     * Tests that a partition whose Flux is not consuming records is paused without
+     * blocking delivery from other partitions.
+     */
+    @Test
+    public void receivePartitionedBackPressure() {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        TopicPartition slowPartition = new TopicPartition(topic, 0);
+        int slowCount = 300;
+        sendMessagesToPartition(topic, 0, 0, slowCount);
+        sendMessagesToPartition(topic, 1, slowCount, 10);
+        MonoProcessor<Void> release = MonoProcessor.create();
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receivePartitioned()
+                .flatMap(partitionFlux -> partitionFlux.key().equals(slowPartition) ?
+                        partitionFlux.concatMap(r -> release.thenReturn(r), 1) : partitionFlux);
+        StepVerifier.create(inboundFlux.take(slowCount + 10))
+            .recordWith(this::receivedRecords)
+            .expectNextCount(10)
+            .then(() -> {
+                TestUtils.waitUntil("Partition not paused", null,
+                    r -> r.doOnConsumer(c -> c.paused()).block(Duration.ofSeconds(1)).contains(slowPartition),
+                    receiver, Duration.ofSeconds(5));
+                long position = receiver.doOnConsumer(c -> c.position(slowPartition)).block(Duration.ofSeconds(1));
+                assertTrue("Too many records fetched " + position, position < slowCount);
+                release.onComplete();
+            })
+            .expectNextCount(slowCount)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        verifyMessages(slowCount + 10);
+    }
+
+    /**
+     * Tests that records of a multicast Flux are delivered to all subscribers and committed
+     * only after all subscribers have acknowledged the records.
+     */
+    @Test
+    public void receiveMulticast() throws Exception {
+        receiverOptions = receiverOptions
+                .subscription(Collections.singleton(topic))
+                .commitBatchSize(1);
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receiveMulticast(2);
+        List<ReceiverRecord<Integer, String>> acknowledging = new CopyOnWriteArrayList<>();
+        List<ReceiverRecord<Integer, String>> holding = new CopyOnWriteArrayList<>();
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        Disposable disposable = inboundFlux
+                .doOnNext(r -> {
+                    acknowledging.add(r);
+                    r.receiverOffset().acknowledge();
+                })
+                .subscribe();
+        inboundFlux.doOnNext(holding::add)
+                .doOnComplete(completeLatch::countDown)
+                .subscribe();
+
+        TestUtils.waitUntil("Records not received by all subscribers", null,
+            r -> acknowledging.size() == 20 && holding.size() == 20, receiver, Duration.ofSeconds(5));
+        Thread.sleep(200);
+        for (TopicPartition partition : cluster.partitions(topic))
+            assertEquals(null, cluster.committedOffset(groupId, partition));
+        for (int i = 0; i < 20; i++)
+            assertEquals(acknowledging.get(i).value(), holding.get(i).value());
+
+        holding.forEach(r -> r.receiverOffset().acknowledge());
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        for (ReceiverRecord<Integer, String> r : holding)
+            endOffsets.put(r.receiverOffset().topicPartition(), r.offset() + 1);
+        TestUtils.waitUntil("Offsets not committed", null,
+            r -> endOffsets.entrySet().stream().allMatch(e -> e.getValue().equals(cluster.committedOffset(groupId, e.getKey()))),
+            receiver, Duration.ofSeconds(5));
+
+        disposable.dispose();
+        assertTrue("Subscriber not completed on cancel", completeLatch.await(5, TimeUnit.SECONDS));
+        TestUtils.waitUntil("Consumer not closed", null, c -> c.closed(), consumer, Duration.ofSeconds(5));
+    }
+
+    /**
+     * Tests that partitions of a multicast receiver are paused when acknowledgements are deferred
+     * behind a record that is never acknowledged, even if max deferred commits is not configured.
+     */
+    @Test
+    public void receiveMulticastDeferredCommitsBounded() throws Exception {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        TopicPartition partition = new TopicPartition(topic, 0);
+        int count = 1500;
+        sendMessagesToPartition(topic, 0, 0, count);
+        consumer.setRequestLatencyMs(0);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Disposable disposable = receiver.receiveMulticast(1)
+                .doOnNext(r -> {
+                    if (r.offset() > 0)
+                        r.receiverOffset().acknowledge();
+                })
+                .subscribe();
+        try {
+            TestUtils.waitUntil("Partition not paused", null,
+                r -> r.doOnConsumer(c -> c.paused()).block(Duration.ofSeconds(1)).contains(partition),
+                receiver, Duration.ofSeconds(10));
+            Thread.sleep(100);
+            long position = receiver.doOnConsumer(c -> c.position(partition)).block(Duration.ofSeconds(1));
+            assertTrue("Too many records fetched " + position, position < count);
+        } finally {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Tests that records of revoked partitions that were polled but not delivered are
+     * discarded and that acknowledgements of records delivered before revocation are ignored.
+     */
+    @Test
+    public void revokedPartitionRecordsDiscarded() {
+        receiverOptions = receiverOptions
+                .subscription(Collections.singleton(topic))
+                .commitBatchSize(1);
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        List<ReceiverRecord<Integer, String>> received = new CopyOnWriteArrayList<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receive()
+                .doOnNext(r -> {
+                    received.add(r);
+                    // Rebalance while the remaining records of the first batch are pending delivery
+                    if (received.size() == 1)
+                        rebalance(receiver, false);
+                });
+        StepVerifier.create(inboundFlux, 1)
+            .expectNextCount(1)
+            .then(() -> received.get(0).receiverOffset().acknowledge())
+            .thenRequest(20)
+            .expectNextCount(18)
+            .expectNoEvent(Duration.ofMillis(200))
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        Set<String> values = new HashSet<>();
+        for (ReceiverRecord<Integer, String> r : received)
+            assertTrue("Duplicate record " + r, values.add(r.value()));
+        for (TopicPartition partition : cluster.partitions(topic))
+            assertEquals(null, cluster.committedOffset(groupId, partition));
+    }
+
+    /**
+     * Tests that demand for records of revoked partitions that are skipped on delivery
+     * is restored, so that the requested number of records is delivered.
+     */
+    @Test
+    public void revokedPartitionDemandRestored() {
+        receiverOptions = receiverOptions
+                .consumerProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "10")
+                .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        AtomicInteger received = new AtomicInteger();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receive()
+                .doOnNext(r -> {
+                    if (received.incrementAndGet() == 1)
+                        rebalance(receiver, true);
+                });
+        StepVerifier.create(inboundFlux, 10)
+            .expectNextCount(10)
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+    }
+
+    /**
+     * Tests that records of revoked partitions queued for delivery to a partition flux
+     * are discarded and that their acknowledgements are ignored.
+     */
+    @Test
+    public void revokedPartitionedRecordsDiscarded() throws Exception {
+        receiverOptions = receiverOptions
+                .subscription(Collections.singleton(topic))
+                .commitBatchSize(1);
+        TopicPartition partition = new TopicPartition(topic, 0);
+        sendMessagesToPartition(topic, 0, 0, 10);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        List<ReceiverRecord<Integer, String>> received = new CopyOnWriteArrayList<>();
+        CountDownLatch firstLatch = new CountDownLatch(1);
+        CountDownLatch revokeLatch = new CountDownLatch(1);
+        Disposable disposable = receiver.receivePartitioned()
+                .flatMap(partitionFlux -> partitionFlux.doOnNext(r -> {
+                    received.add(r);
+                    if (received.size() == 1) {
+                        firstLatch.countDown();
+                        try {
+                            revokeLatch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }))
+                .subscribe();
+        try {
+            assertTrue("Records not received", firstLatch.await(DEFAULT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+            // Revoke the partition after the remaining records have been queued
+            TestUtils.waitUntil("Records not polled", null, r -> r.doOnConsumer(c -> c.position(partition)).block() == 10, receiver, Duration.ofSeconds(5));
+            receiver.doOnConsumer(c -> {
+                Set<TopicPartition> assigned = c.assignment();
+                receiver.onPartitionsRevoked(assigned);
+                return assigned;
+            }).block(Duration.ofSeconds(5));
+            revokeLatch.countDown();
+            received.get(0).receiverOffset().acknowledge();
+            Thread.sleep(200);
+            assertEquals(1, received.size());
+            assertEquals(null, cluster.committedOffset(groupId, partition));
+        } finally {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Revokes and reassigns the partitions of <code>receiver</code> on the consumer thread, optionally
+     * rewinding the partitions to the beginning, and waits for the rebalance to complete.
+     */
+    private void rebalance(DefaultKafkaReceiver<Integer, String> receiver, boolean rewind) {
+        CountDownLatch rebalanceLatch = new CountDownLatch(1);
+        receiver.doOnConsumer(c -> {
+            // Partitions are no longer paused after reassignment
+            Set<TopicPartition> assigned = c.assignment();
+            receiver.onPartitionsRevoked(assigned);
+            c.resume(assigned);
+            receiver.onPartitionsAssigned(assigned);
+            if (rewind)
+                c.seekToBeginning(assigned);
+            return assigned;
+        }).subscribe(p -> rebalanceLatch.countDown());
+        try {
+            assertTrue("Rebalance timed out", rebalanceLatch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Tests that records are not delivered before their due time configured using
+     * {@link ReceiverOptions#recordDueTime(Function)} and that a delayed partition does
+     * not delay records of other partitions.
+     */
+    @Test
+    public void recordDueTime() {
+        receiverOptions = receiverOptions
+                .recordDueTime(RetryTopics::dueTime)
+                .subscription(Collections.singleton(topic));
+        long dueTime = System.currentTimeMillis() + 500;
+        for (int i = 0; i < 5; i++) {
+            ProducerRecord<Integer, String> record = new ProducerRecord<>(topic, 0, i, "Delayed-" + i);
+            record.headers().add(RetryTopics.DUE_TIME_HEADER, ByteBuffer.allocate(8).putLong(dueTime).array());
+            cluster.appendMessage(record);
+        }
+        sendMessagesToPartition(topic, 1, 5, 5);
+        Map<Integer, Long> receiveTimes = new ConcurrentHashMap<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .doOnNext(r -> receiveTimes.put(r.key(), System.currentTimeMillis()));
+        StepVerifier.create(inboundFlux)
+            .expectNextCount(10)
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        for (int i = 0; i < 5; i++) {
+            assertTrue("Record delivered early " + i, receiveTimes.get(i) >= dueTime);
+            assertTrue("Record delayed " + (i + 5), receiveTimes.get(i + 5) < dueTime);
+        }
+    }
+
+    /**
+     * Tests that failed records are retried from retry topics without blocking the main topic
+     * and sent to the dead letter topic after all retries have failed.
+     */
+    @Test
+    public void retryTopics() throws Exception {
+        String mainTopic = "orders";
+        int partitions = 2;
+        cluster.addTopic(mainTopic, partitions);
+        MockProducer producer = new MockProducer(cluster);
+        KafkaSender<Integer, String> sender = new DefaultKafkaSender<>(new MockProducer.Pool(Arrays.asList(producer)), SenderOptions.create());
+        RetryTopics<Integer, String> retryTopics = RetryTopics.create(sender, mainTopic, Duration.ofMillis(100), Duration.ofMillis(200));
+        for (String retryTopic : retryTopics.retryTopics())
+            cluster.addTopic(retryTopic, partitions);
+        cluster.addTopic(retryTopics.deadLetterTopic(), partitions);
+        sendMessages(mainTopic, 0, 20);
+
+        Map<Integer, List<Integer>> attempts = new ConcurrentHashMap<>();
+        Function<ReceiverRecord<Integer, String>, Mono<Void>> processOrRetry = r -> {
+            attempts.computeIfAbsent(r.key(), k -> new CopyOnWriteArrayList<>()).add(RetryTopics.attempt(r));
+            Mono<Void> process = r.key() % 5 == 0 ? Mono.error(new RuntimeException("Test exception")) : Mono.empty();
+            return process.onErrorResume(e -> retryTopics.retry(r, e))
+                          .doOnSuccess(v -> r.receiverOffset().acknowledge());
+        };
+        consumerFactory.addConsumer(new MockConsumer(cluster));
+        Disposable mainReceiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions.subscription(Collections.singleton(mainTopic)))
+                .receive()
+                .concatMap(processOrRetry)
+                .subscribe();
+        Disposable retryReceiver = new DefaultKafkaReceiver<>(consumerFactory, retryTopics.retryReceiverOptions(receiverOptions))
+                .receive()
+                .concatMap(processOrRetry)
+                .subscribe();
+        try {
+            TestUtils.waitUntil("Failed records not in dead letter topic", null,
+                c -> c.partitions(retryTopics.deadLetterTopic()).stream().mapToInt(p -> c.log(p).size()).sum() == 4,
+                cluster, Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        } finally {
+            mainReceiver.dispose();
+            retryReceiver.dispose();
+            sender.close();
+        }
+        for (int key = 0; key < 20; key++) {
+            List<Integer> expected = key % 5 == 0 ? Arrays.asList(0, 1, 2) : Arrays.asList(0);
+            assertEquals("Unexpected attempts of " + key, expected, attempts.get(key));
+        }
+        for (TopicPartition partition : cluster.partitions(retryTopics.deadLetterTopic())) {
+            for (Message message : cluster.log(partition)) {
+                assertEquals(0, message.key() % 5);
+                assertEquals(3, ByteBuffer.wrap(message.headers().lastHeader(RetryTopics.ATTEMPT_HEADER).value()).getInt());
+            }
+        }
+    }
+
+    /**
+     * Tests that partitions paused using {@link ReceiverPartition#pause()} or {@link KafkaReceiver#pause(TopicPartition...)}
+     * are not resumed when there is demand until they are resumed by the application.
+     */
+    @Test
+    public void pauseResumePartition() {
+        TopicPartition partition0 = new TopicPartition(topic, 0);
+        receiverOptions = receiverOptions
+                .addAssignListener(partitions -> {
+                    for (ReceiverPartition p : partitions) {
+                        if (p.topicPartition().equals(partition0))
+                            p.pause();
+                    }
+                })
+                .subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        List<ReceiverRecord<Integer, String>> received = new CopyOnWriteArrayList<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = receiver.receive().doOnNext(received::add);
+        StepVerifier.create(inboundFlux)
+            .expectNextCount(10)
+            .expectNoEvent(Duration.ofMillis(300))
+            .then(() -> receiver.resume(partition0))
+            .expectNextCount(10)
+            .then(() -> receiver.pause(partition0))
+            .expectNoEvent(Duration.ofMillis(200))
+            .then(() -> sendMessages(topic, 20, 4))
+            .expectNextCount(2)
+            .expectNoEvent(Duration.ofMillis(300))
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        int index = 0;
+        for (ReceiverRecord<Integer, String> record : received) {
+            int expectedPartition = index < 10 ? 1 : index < 20 ? 0 : 1;
+            assertEquals(expectedPartition, record.partition());
+            index++;
+        }
+    }
+
+    /**
+     * Tests that partitions of lower priority topics configured using {@link ReceiverOptions#topicPriorities(Map)}
+     * are not consumed while higher priority topics have backlog.
+     */
+    @Test
+    public void topicPriorities() {
+        String highPriorityTopic = topics.get(1);
+        String lowPriorityTopic = topics.get(2);
+        receiverOptions = receiverOptions
+                .topicPriorities(Collections.singletonMap(highPriorityTopic, 1))
+                .subscription(Arrays.asList(highPriorityTopic, lowPriorityTopic));
+        sendMessages(highPriorityTopic, 0, 20);
+        sendMessages(lowPriorityTopic, 100, 20);
+        List<ReceiverRecord<Integer, String>> received = new CopyOnWriteArrayList<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .doOnNext(received::add);
+        StepVerifier.create(inboundFlux, 40)
+            .expectNextCount(40)
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        int lowPriorityCount = 0;
+        for (int i = 0; i < 20 + lowPriorityCount; i++) {
+            if (received.get(i).topic().equals(lowPriorityTopic))
+                lowPriorityCount++;
+        }
+        assertTrue("Low priority records not paused " + lowPriorityCount, lowPriorityCount <= 4);
+    }
+
+    /**
+     * Tests that partitions of lower priority topics are consumed while a higher priority topic
+     * receives a steady trickle of records that are consumed as they arrive, since the lag of the
+     * higher priority topic does not exceed {@link ReceiverOptions#topicPriorityMaxLag(long)}.
+     */
+    @Test
+    public void topicPrioritiesTrickle() {
+        String highPriorityTopic = topics.get(1);
+        String lowPriorityTopic = topics.get(2);
+        AtomicInteger trickle = new AtomicInteger();
+        consumer = new MockConsumer(cluster) {
+            @Override
+            public ConsumerRecords<Integer, String> poll(Duration timeout) {
+                ConsumerRecords<Integer, String> records = super.poll(timeout);
+                sendMessages(highPriorityTopic, trickle.getAndIncrement(), 1);
+                return records;
+            }
+        };
+        consumerFactory = new MockConsumer.Pool(Arrays.asList(consumer));
+        receiverOptions = receiverOptions
+                .consumerProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "10")
+                .topicPriorities(Collections.singletonMap(highPriorityTopic, 1))
+                .subscription(Arrays.asList(highPriorityTopic, lowPriorityTopic));
+        sendMessages(lowPriorityTopic, 100, 40);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .limitRate(10)
+                .filter(r -> r.topic().equals(lowPriorityTopic));
+        StepVerifier.create(inboundFlux.take(40))
+            .expectNextCount(40)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        assertTrue("High priority records not polled", trickle.get() > 1);
+    }
+
+    /**
+     * Tests that records that don't match record and header filters are not delivered
+     * and that committed offsets advance past filtered records.
+     */
+    @Test
+    public void recordFilter() throws Exception {
+        receiverOptions = receiverOptions
+                .headerFilter(headers -> headers.lastHeader("skip") == null)
+                .recordFilter(r -> r.key() < 15)
+                .commitBatchSize(1)
+                .subscription(Collections.singleton(topic));
+        TopicPartition partition = new TopicPartition(topic, 0);
+        for (int i = 0; i < 20; i++) {
+            ProducerRecord<Integer, String> record = new ProducerRecord<>(topic, 0, i, "Message-" + i);
+            if (i % 2 == 1)
+                record.headers().add("skip", new byte[0]);
+            cluster.appendMessage(record);
+        }
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Disposable disposable = receiver.receive()
+                .doOnNext(r -> {
+                    received.add(r.key());
+                    r.receiverOffset().acknowledge();
+                })
+                .subscribe();
+        try {
+            TestUtils.waitUntil("Offsets not committed past filtered records", null,
+                r -> Long.valueOf(20).equals(cluster.committedOffset(groupId, partition)),
+                receiver, Duration.ofSeconds(5));
+            assertEquals(Arrays.asList(0, 2, 4, 6, 8, 10, 12, 14), received);
+        } finally {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Tests that a materialized table is ready after all partitions have been read from
+     * the beginning and that the table is updated from the tail of the partitions.
+     */
+    @Test
+    public void materialize() throws Exception {
+        receiverOptions = receiverOptions
+                .consumerProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest")
+                .assignment(cluster.partitions(topic));
+        sendMessages(topic, 0, 20);
+        int partitions = cluster.cluster().partitionCountForTopic(topic);
+        for (int i = 0; i < 5; i++)
+            cluster.appendMessage(new ProducerRecord<Integer, String>(topic, i % partitions, i, "Updated-" + i));
+        cluster.appendMessage(new ProducerRecord<Integer, String>(topic, 5 % partitions, 5, null));
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        List<Map<Integer, String>> tables = new CopyOnWriteArrayList<>();
+        Disposable disposable = receiver.materialize().subscribe(tables::add);
+        try {
+            TestUtils.waitUntil("Table not ready", null, t -> t.size() == 1, tables, Duration.ofSeconds(5));
+            Map<Integer, String> table = tables.get(0);
+            assertEquals(19, table.size());
+            assertFalse("Deleted key in table", table.containsKey(5));
+            for (int i = 0; i < 20; i++) {
+                if (i != 5)
+                    assertEquals((i < 5 ? "Updated-" : "Message-") + i, table.get(i));
+            }
+
+            cluster.appendMessage(new ProducerRecord<Integer, String>(topic, 0, 100, "Message-100"));
+            TestUtils.waitUntil("Table not updated", null, t -> "Message-100".equals(t.get(100)), table, Duration.ofSeconds(5));
+            assertEquals(1, tables.size());
+        } finally {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Tests that assigned partitions are positioned using the configured start time
+     * and start offsets before records are fetched.
+     */
+    @Test
+    public void startPositions() {
+        long startTime = System.currentTimeMillis() - 60000;
+        TopicPartition partition1 = new TopicPartition(topic, 1);
+        for (int i = 0; i < 10; i++) {
+            long timestamp = startTime + (i - 5) * 1000;
+            cluster.appendMessage(new ProducerRecord<>(topic, 0, timestamp, i, "Message-" + i));
+            cluster.appendMessage(new ProducerRecord<>(topic, 1, timestamp, 10 + i, "Message-" + (10 + i)));
+        }
+        receiverOptions = receiverOptions
+                .startFrom(Instant.ofEpochMilli(startTime))
+                .startOffsets(Collections.singletonMap(partition1, 8L))
+                .subscription(Collections.singleton(topic));
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .doOnNext(r -> received.add(r.key()));
+        StepVerifier.create(inboundFlux)
+            .expectNextCount(7)
+            .expectNoEvent(Duration.ofMillis(100))
+            .thenCancel()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        Collections.sort(received);
+        assertEquals(Arrays.asList(5, 6, 7, 8, 9, 18, 19), received);
+    }
+
+    /**
+     * Tests that a partition moved to another consumer of a concurrent receiver by a rebalance
+     * resumes from its committed offset instead of its configured start offset.
+     */
+    @Test
+    public void startPositionsConcurrentRebalance() throws Exception {
+        String topic = topics.get(1);
+        TopicPartition partition = new TopicPartition(topic, 0);
+        MockConsumer consumer2 = new MockConsumer(cluster);
+        consumerFactory.addConsumer(consumer2);
+        consumer.rebalance(Collections.emptyList());
+        consumer2.rebalance(Collections.emptyList());
+        sendMessages(topic, 0, 10);
+        AtomicInteger assignments = new AtomicInteger();
+        receiverOptions = receiverOptions
+                .addAssignListener(partitions -> assignments.incrementAndGet())
+                .concurrency(2)
+                .startOffsets(Collections.singletonMap(partition, 5L))
+                .commitBatchSize(1)
+                .subscription(Collections.singleton(topic));
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Disposable disposable = new ConcurrentKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .doOnNext(r -> {
+                    received.add(r.key());
+                    r.receiverOffset().acknowledge();
+                })
+                .subscribe();
+        try {
+            TestUtils.waitUntil("Consumers not created", null, f -> f.consumersInUse().size() == 2, consumerFactory, Duration.ofSeconds(5));
+            MockConsumer first = consumerFactory.consumersInUse().get(0);
+            MockConsumer second = consumerFactory.consumersInUse().get(1);
+            first.rebalance(Collections.singleton(partition));
+            TestUtils.waitUntil("Offsets not committed", null, c -> Long.valueOf(10).equals(c.committedOffset(groupId, partition)), cluster, Duration.ofSeconds(5));
+
+            first.rebalance(Collections.emptyList());
+            second.rebalance(Collections.singleton(partition));
+            TestUtils.waitUntil("Partition not reassigned", null, a -> a.get() == 2, assignments, Duration.ofSeconds(5));
+            sendMessages(topic, 10, 5);
+            TestUtils.waitUntil("Records not received", null, r -> r.size() >= 10, received, Duration.ofSeconds(5));
+            Thread.sleep(100);
+            assertEquals(Arrays.asList(5, 6, 7, 8, 9, 10, 11, 12, 13, 14), received);
+        } finally {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Tests that operations scoped to a single consumer are rejected by a concurrent receiver.
+     */
+    @Test
+    public void concurrentReceiverUnsupportedOperations() {
+        receiverOptions = receiverOptions
+                .concurrency(2)
+                .subscription(Collections.singleton(topic));
+        ConcurrentKafkaReceiver<Integer, String> receiver = new ConcurrentKafkaReceiver<>(consumerFactory, receiverOptions);
+        StepVerifier.create(receiver.doOnConsumer(c -> c.assignment()))
+            .expectError(UnsupportedOperationException.class)
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        try {
+            receiver.receiveExactlyOnce(null);
+            fail("Exactly once delivery not rejected");
+        } catch (UnsupportedOperationException e) {
+            // Expected exception
+        }
+    }
+
+    /**
+     * Tests that a warmed up consumer is assigned partitions before the receiver is subscribed
+     * and that the receiver delivers records using the warmed up consumer.
+     */
+    @Test
+    public void warmUp() {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        receiver.warmUp().block(Duration.ofSeconds(5));
+        assertTrue("Consumer not polled during warm up", consumer.pollCount() > 0);
+        assertTrue("Assign listeners invoked during warm up", assignedPartitions.isEmpty());
+        assertEquals(1, consumerFactory.consumersInUse().size());
+
+        receiveAndVerify(receiver.receive(), 20);
+        assertEquals(new HashSet<>(cluster.partitions(topic)), assignedPartitions);
+        assertEquals(1, consumerFactory.consumersInUse().size());
+    }
+
+    /**
+     * Tests that a warmed up consumer is closed by {@link KafkaReceiver#releaseWarmUp()} if the receiver
+     * is not subscribed and that a new consumer is created if the receiver is subscribed later.
+     */
+    @Test
+    public void warmUpReleased() {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        sendMessages(topic, 0, 20);
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        receiver.warmUp().block(Duration.ofSeconds(5));
+        assertFalse("Consumer closed", consumer.closed());
+
+        receiver.releaseWarmUp().block(Duration.ofSeconds(5));
+        assertTrue("Warmed up consumer not closed", consumer.closed());
+
+        consumerFactory.addConsumer(new MockConsumer(cluster));
+        receiveAndVerify(receiver.receive(), 20);
+        assertEquals(2, consumerFactory.consumersInUse().size());
+    }
+
+    /**
+     * Tests that a warmed up consumer is closed if the warm up is cancelled.
+     */
+    @Test
+    public void warmUpCancelled() throws Exception {
+        receiverOptions = receiverOptions.subscription(Collections.singleton(topic));
+        DefaultKafkaReceiver<Integer, String> receiver = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions);
+        Disposable disposable = receiver.warmUp(() -> false).subscribe();
+        TestUtils.waitUntil("Consumer not polled", null, c -> c.pollCount() > 1, consumer, Duration.ofSeconds(5));
+        disposable.dispose();
+        TestUtils.waitUntil("Warmed up consumer not closed", null, c -> c.closed(), consumer, Duration.ofSeconds(5));
+    }
+
+    /**
+     * Tests that offsets are committed to a memory-mapped offset store instead of Kafka
+     * and that assigned partitions are positioned at the stored offsets.
+     */
+    @Test
+    public void offsetStore() throws Exception {
+        Path file = Files.createTempFile("offsets", ".dat");
+        try {
+            MappedFileOffsetStore offsetStore = MappedFileOffsetStore.create(file, Duration.ofSeconds(1));
+            receiverOptions = receiverOptions
+                    .offsetStore(offsetStore)
+                    .commitBatchSize(1)
+                    .assignment(cluster.partitions(topic));
+            sendMessages(topic, 0, 20);
+            Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                    .receive()
+                    .concatMap(r -> r.receiverOffset().commit().thenReturn(r))
+                    .doOnNext(r -> endOffsets.put(r.receiverOffset().topicPartition(), r.offset() + 1))
+                    .take(10);
+            StepVerifier.create(inboundFlux)
+                .recordWith(this::receivedRecords)
+                .expectNextCount(10)
+                .expectComplete()
+                .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+            assertEquals(endOffsets, offsetStore.load(cluster.partitions(topic)));
+            for (TopicPartition partition : cluster.partitions(topic))
+                assertEquals(null, cluster.committedOffset(groupId, partition));
+
+            offsetStore.close();
+            offsetStore = MappedFileOffsetStore.create(file, Duration.ofSeconds(1));
+            assertEquals(endOffsets, offsetStore.load(cluster.partitions(topic)));
+            consumerFactory.addConsumer(new MockConsumer(cluster));
+            StepVerifier.create(new DefaultKafkaReceiver<>(consumerFactory, receiverOptions.offsetStore(offsetStore)).receive().take(10))
+                .recordWith(this::receivedRecords)
+                .expectNextCount(10)
+                .expectComplete()
+                .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+            offsetStore.close();
+            verifyMessages(20);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that poll, commit and acknowledgement metrics are reported to the configured
+     * metrics listener and that gauges are bound while the receiver flux is active.
+     */
+    @Test
+    public void metrics() throws Exception {
+        consumer.addCommitException(new RetriableCommitFailedException("coordinator failed"), 2);
+        AtomicInteger polledRecords = new AtomicInteger();
+        AtomicInteger commits = new AtomicInteger();
+        List<Integer> commitFailures = new CopyOnWriteArrayList<>();
+        Map<TopicPartition, AtomicInteger> acknowledgements = new ConcurrentHashMap<>();
+        AtomicReference<ReceiverMetrics.Gauges> boundGauges = new AtomicReference<>();
+        ReceiverMetrics metrics = new ReceiverMetrics() {
+            @Override
+            public void bind(Gauges gauges) {
+                boundGauges.set(gauges);
+            }
+            @Override
+            public void unbind(Gauges gauges) {
+                boundGauges.compareAndSet(gauges, null);
+            }
+            @Override
+            public void onPoll(long latencyNanos, int records) {
+                polledRecords.addAndGet(records);
+            }
+            @Override
+            public void onCommit(long latencyNanos) {
+                commits.incrementAndGet();
+            }
+            @Override
+            public void onCommitFailure(Exception exception, int consecutiveFailures) {
+                commitFailures.add(consecutiveFailures);
+            }
+            @Override
+            public void onAcknowledge(TopicPartition partition, long delayNanos) {
+                assertTrue("Invalid acknowledgement delay " + delayNanos, delayNanos >= 0);
+                acknowledgements.computeIfAbsent(partition, p -> new AtomicInteger()).incrementAndGet();
+            }
+        };
+        receiverOptions = receiverOptions
+                .metrics(metrics)
+                .commitBatchSize(0)
+                .commitInterval(Duration.ofMillis(Long.MAX_VALUE))
+                .maxCommitAttempts(1)
+                .subscription(Collections.singletonList(topic));
+        sendMessages(topic, 0, 20);
+        AtomicLong requestsPending = new AtomicLong(-1);
+        Flux<ReceiverRecord<Integer, String>> inboundFlux = new DefaultKafkaReceiver<>(consumerFactory, receiverOptions)
+                .receive()
+                .concatMap(record -> record.receiverOffset().commit().retry().then(Mono.just(record)))
+                .doOnNext(r -> requestsPending.set(boundGauges.get().requestsPending()))
+                .take(20);
+        StepVerifier.create(inboundFlux)
+            .recordWith(this::receivedRecords)
+            .expectNextCount(20)
+            .expectComplete()
+            .verify(Duration.ofMillis(DEFAULT_TEST_TIMEOUT));
+        verifyMessages(20);
+
+        assertEquals(20, polledRecords.get());
+        assertEquals(Arrays.asList(1, 2), commitFailures);
+        assertTrue("Commits not reported", commits.get() >= 20);
+        assertEquals(new HashSet<>(cluster.partitions(topic)), acknowledgements.keySet());
+        assertEquals(20, acknowledgements.values().stream().mapToInt(AtomicInteger::get).sum());
+        assertTrue("Invalid requests pending " + requestsPending.get(), requestsPending.get() >= 0);
+        assertEquals(null, boundGauges.get());
+    }
+
     @Test
     public void consumerMethods() throws Exception {
         testConsumerMethod(c -> assertEquals(this.assignedPartitions, c.assignment()));
         testConsumerMethod(c -> assertEquals(Collections.singleton(topic), c.subscription()));
         testConsumerMethod(c -> assertEquals(2, c.partitionsFor(topics.get(2)).size()));
         testConsumerMethod(c -> assertEquals(topics.size(), c.listTopics().size()));
-        testConsumerMethod(c -> assertEquals(0, c.metrics().size()));
+        testConsumerMethod(c -> assertEquals(c.assignment().size(), c.metrics().size()));
 
         testConsumerMethod(c -> {
             Collection<TopicPartition> partitions = Collections.singleton(new TopicPartition(topic, 1));
@@ -1491,6 +2478,15 @@ public class MockReceiverTest {
         return received;
     }
 
+    /**
+     * Returns {@link #receivedMessages} as a collection of receiver records for
+     * {@link StepVerifier.Step#recordWith(java.util.function.Supplier)}.
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<ReceiverRecord<Integer, String>> receivedRecords() {
+        return (Collection<ReceiverRecord<Integer, String>>) (Collection<?>) receivedMessages;
+    }
+
     public void verifyMessages(int count) {
         Map<TopicPartition, Long> offsets = new HashMap<>(receiveStartOffsets);
         for (ConsumerRecord<Integer, String> received : receivedMessages) {
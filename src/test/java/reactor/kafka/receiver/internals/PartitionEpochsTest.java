@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionEpochsTest {
+
+    private final TopicPartition partition0 = new TopicPartition("topic", 0);
+    private final TopicPartition partition1 = new TopicPartition("topic", 1);
+    private final PartitionEpochs epochs = new PartitionEpochs();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    @Test
+    public void undeliveredRecordsOfRevokedPartitionDiscarded() {
+        epochs.onAssign(Arrays.asList(partition0, partition1));
+        ConsumerRecords<Integer, String> batch1 = records(0, 2, 0, 2);
+        ConsumerRecords<Integer, String> batch2 = records(2, 2, 2, 2);
+        epochs.onDispatch(batch1);
+        epochs.onDispatch(batch2);
+        assertEquals(4, count(epochs.liveRecords(batch1, skipped::addAndGet)));
+
+        epochs.onRevoke(Collections.singleton(partition0));
+        epochs.onAssign(Collections.singleton(partition0));
+        ConsumerRecords<Integer, String> batch3 = records(0, 2, -1, 0);
+        epochs.onDispatch(batch3);
+
+        ConsumerRecords<Integer, String> live = epochs.liveBatch(batch2);
+        assertEquals(Collections.singleton(partition1), live.partitions());
+        assertEquals(2, live.count());
+        assertEquals(2, count(epochs.liveRecords(batch3, skipped::addAndGet)));
+        assertEquals(0, skipped.get());
+    }
+
+    @Test
+    public void partitionRevokedDuringDelivery() {
+        epochs.onAssign(Arrays.asList(partition0, partition1));
+        ConsumerRecords<Integer, String> batch = records(0, 3, 0, 3);
+        epochs.onDispatch(batch);
+        Iterator<ConsumerRecord<Integer, String>> iterator = epochs.liveRecords(batch, skipped::addAndGet).iterator();
+        TopicPartition first = new TopicPartition("topic", iterator.next().partition());
+        epochs.onRevoke(Collections.singleton(first));
+        int remaining = 0;
+        while (iterator.hasNext()) {
+            assertNotEquals(first.partition(), iterator.next().partition());
+            remaining++;
+        }
+        assertEquals(3, remaining);
+        assertEquals(2, skipped.get());
+    }
+
+    @Test
+    public void acknowledgementAfterRevokeIgnored() {
+        assertFalse(epochs.isStale(partition0, PartitionEpochs.REVOKED));
+        epochs.onAssign(Collections.singleton(partition0));
+        long epoch = epochs.epoch(partition0);
+        assertFalse(epochs.isStale(partition0, epoch));
+        epochs.onRevoke(Collections.singleton(partition0));
+        assertEquals(PartitionEpochs.REVOKED, epochs.epoch(partition0));
+        assertTrue(epochs.isStale(partition0, epoch));
+        epochs.onAssign(Collections.singleton(partition0));
+        assertNotEquals(epoch, epochs.epoch(partition0));
+        assertTrue(epochs.isStale(partition0, epoch));
+    }
+
+    private int count(Iterable<ConsumerRecord<Integer, String>> records) {
+        int count = 0;
+        for (ConsumerRecord<Integer, String> record : records)
+            count++;
+        return count;
+    }
+
+    /**
+     * Returns records of partitions 0 and 1 starting at the specified offsets. Partition 1
+     * is omitted if its start offset is negative.
+     */
+    private ConsumerRecords<Integer, String> records(long offset0, int count0, long offset1, int count1) {
+        Map<TopicPartition, List<ConsumerRecord<Integer, String>>> records = new HashMap<>();
+        records.put(partition0, partitionRecords(partition0, offset0, count0));
+        if (offset1 >= 0)
+            records.put(partition1, partitionRecords(partition1, offset1, count1));
+        return new ConsumerRecords<>(records);
+    }
+
+    private List<ConsumerRecord<Integer, String>> partitionRecords(TopicPartition partition, long offset, int count) {
+        List<ConsumerRecord<Integer, String>> list = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            list.add(new ConsumerRecord<>(partition.topic(), partition.partition(), offset + i, null, "value"));
+        return list;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016-2018 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package reactor.kafka.receiver.internals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Test;
+
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedRecordsTest {
+
+    private final TopicPartition partition = new TopicPartition("topic", 0);
+    private final Scheduler scheduler = Schedulers.newSingle("partitioned-test");
+    private final PartitionedRecords<Integer, String> partitionedRecords =
+            new PartitionedRecords<>(scheduler, 4, r -> new ReceiverRecord<>(r, null));
+
+    @After
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void queuedRecordsCountedAgainstHighWaterMark() {
+        partitionedRecords.onAssign(Collections.singleton(partition));
+        GroupedFlux<TopicPartition, ReceiverRecord<Integer, String>> partitionFlux = partitionedRecords.groups().blockFirst();
+        StepVerifier.create(partitionFlux, 1)
+            .then(() -> partitionedRecords.onNext(records(0, 1)))
+            .expectNextMatches(r -> r.offset() == 0)
+            .then(() -> {
+                partitionedRecords.onNext(records(1, 3));
+                assertTrue(partitionedRecords.backlogged().isEmpty());
+                partitionedRecords.onNext(records(4, 1));
+                assertEquals(Collections.singleton(partition), partitionedRecords.backlogged());
+            })
+            .thenRequest(4)
+            .expectNextCount(4)
+            .then(() -> assertTrue(partitionedRecords.backlogged().isEmpty()))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void revokedPartitionCompletesWithoutQueuedRecords() {
+        partitionedRecords.onAssign(Collections.singleton(partition));
+        GroupedFlux<TopicPartition, ReceiverRecord<Integer, String>> partitionFlux = partitionedRecords.groups().blockFirst();
+        StepVerifier.create(partitionFlux, 1)
+            .then(() -> partitionedRecords.onNext(records(0, 3)))
+            .expectNextMatches(r -> r.offset() == 0)
+            .then(() -> partitionedRecords.onRevoke(Collections.singleton(partition)))
+            .thenRequest(2)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    private ConsumerRecords<Integer, String> records(long startOffset, int count) {
+        List<ConsumerRecord<Integer, String>> list = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            list.add(new ConsumerRecord<>(partition.topic(), partition.partition(), startOffset + i, i, "value" + i));
+        return new ConsumerRecords<>(Collections.singletonMap(partition, list));
+    }
+}
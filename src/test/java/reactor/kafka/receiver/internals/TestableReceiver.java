@@ -66,8 +66,8 @@ public class TestableReceiver {
         scheduler.dispose();
     }
 
-    public Map<TopicPartition, Long> fluxOffsetMap() {
-        Map<TopicPartition, Long> commitOffsets = TestUtils.getField(kafkaReceiver, "commitEvent.commitBatch.consumedOffsets");
+    public Map<TopicPartition, ?> fluxOffsetMap() {
+        Map<TopicPartition, ?> commitOffsets = TestUtils.getField(kafkaReceiver, "commitEvent.commitBatch.consumedOffsets");
         return commitOffsets;
     }
 
@@ -107,7 +107,7 @@ public class TestableReceiver {
     }
 
     public void injectCommitError() {
-        fluxOffsetMap().put(NON_EXISTENT_PARTITION, 1L);
+        kafkaReceiver.committableBatch().updateOffset(NON_EXISTENT_PARTITION, 1L);
     }
 
     public void injectCommitEventForRetriableException() {
@@ -24,12 +24,14 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static reactor.kafka.AbstractKafkaTest.DEFAULT_TEST_TIMEOUT;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -139,6 +141,137 @@ public class MockTransactionTest {
         assertEquals(transactionCount, producer.sendOffsetsCount);
     }
 
+    /**
+     * Tests that transactions span multiple polls when {@link ReceiverOptions#transactionMaxRecords(int)}
+     * is configured, with the offsets of all polls sent within each transaction.
+     */
+    @Test
+    public void transactionMaxRecords() throws Exception {
+        int count = 600;
+        int transactionRecords = maxPollRecords * 3;
+        sendMessages(srcTopic, 0, count);
+
+        receiverOptions = receiverOptions.transactionMaxRecords(transactionRecords);
+        receiver = new DefaultKafkaReceiver<Integer, String>(consumerFactory, receiverOptions);
+        int transactionCount = count / transactionRecords;
+        Flux<SenderResult<Integer>> flux = receiver.receiveExactlyOnce(sender.transactionManager())
+                .concatMap(f -> sendAndCommit(destTopic, f, -1));
+
+        Disposable disposable = flux.subscribe();
+        waitForTransactions(transactionCount);
+
+        disposable.dispose();
+        verifyTransaction(count, count);
+
+        assertEquals(transactionCount, producer.beginCount);
+        assertEquals(transactionCount, producer.commitCount);
+        assertEquals(0, producer.abortCount);
+        assertEquals(transactionCount, producer.sendOffsetsCount);
+    }
+
+    /**
+     * Tests that a transaction that has not reached its maximum size is closed after
+     * {@link ReceiverOptions#transactionMaxDuration(Duration)} when no more records are polled.
+     */
+    @Test
+    public void transactionMaxDuration() throws Exception {
+        int count = 30;
+        sendMessages(srcTopic, 0, count);
+
+        receiverOptions = receiverOptions
+                .transactionMaxRecords(count * 10)
+                .transactionMaxDuration(Duration.ofMillis(200));
+        receiver = new DefaultKafkaReceiver<Integer, String>(consumerFactory, receiverOptions);
+        Flux<SenderResult<Integer>> flux = receiver.receiveExactlyOnce(sender.transactionManager())
+                .concatMap(f -> sendAndCommit(destTopic, f, -1));
+
+        Disposable disposable = flux.subscribe();
+        TestUtils.waitUntil("Transactions not committed, committed=", () -> producer.commitCount,
+            p -> p.commitCount > 0 && cluster.log(new TopicPartition(destTopic, 0)).size() == count / partitions,
+            producer, Duration.ofMillis(10000));
+
+        disposable.dispose();
+        verifyTransaction(count, count);
+        assertEquals(0, producer.abortCount);
+    }
+
+    /**
+     * Tests that periodic checks of {@link ReceiverOptions#transactionMaxDuration(Duration)} don't
+     * begin a transaction without records when the transaction that was open during the check
+     * is closed by its size bound.
+     */
+    @Test
+    public void transactionMaxDurationNoEmptyTransaction() throws Exception {
+        int count = maxPollRecords * 2;
+        sendMessages(srcTopic, 0, count);
+
+        receiverOptions = receiverOptions
+                .transactionMaxRecords(count)
+                .transactionMaxDuration(Duration.ofMillis(40));
+        receiver = new DefaultKafkaReceiver<Integer, String>(consumerFactory, receiverOptions);
+        Flux<SenderResult<Integer>> flux = receiver.receiveExactlyOnce(sender.transactionManager())
+                .concatMap(f -> {
+                    Flux<ConsumerRecord<Integer, String>> delayed = f.index()
+                            .concatMap(t -> t.getT1() > 0 ? Mono.just(t.getT2()) : Mono.delay(Duration.ofMillis(200))
+                                    .thenReturn(t.getT2()));
+                    return sendAndCommit(destTopic, delayed, -1);
+                });
+
+        Disposable disposable = flux.subscribe();
+        waitForTransactions(1);
+        Thread.sleep(200);
+
+        disposable.dispose();
+        verifyTransaction(count, count);
+        assertEquals(1, producer.beginCount);
+        assertEquals(1, producer.sendOffsetsCount);
+        assertEquals(0, producer.abortCount);
+    }
+
+    /**
+     * Tests that a bounded number of batches is prefetched while a transaction is in progress
+     * when {@link ReceiverOptions#transactionPrefetch(int)} is configured.
+     */
+    @Test
+    public void transactionPrefetch() throws Exception {
+        int count = 100;
+        int prefetch = 2;
+        sendMessages(srcTopic, 0, count);
+
+        AtomicInteger polledRecords = new AtomicInteger();
+        MockConsumer consumer = new MockConsumer(cluster) {
+            @Override
+            public ConsumerRecords<Integer, String> poll(Duration timeout) {
+                ConsumerRecords<Integer, String> records = super.poll(timeout);
+                polledRecords.addAndGet(records.count());
+                return records;
+            }
+        };
+        consumerFactory = new MockConsumer.Pool(Arrays.asList(consumer));
+        receiverOptions = receiverOptions.transactionPrefetch(prefetch);
+        receiver = new DefaultKafkaReceiver<Integer, String>(consumerFactory, receiverOptions);
+        AtomicInteger polledDuringTransaction = new AtomicInteger();
+        AtomicInteger transactionIndex = new AtomicInteger();
+        Flux<SenderResult<Integer>> flux = receiver.receiveExactlyOnce(sender.transactionManager())
+                .concatMap(f -> {
+                    if (transactionIndex.getAndIncrement() > 0)
+                        return sendAndCommit(destTopic, f, -1);
+                    Flux<ConsumerRecord<Integer, String>> delayed = f.index()
+                            .concatMap(t -> t.getT1() > 0 ? Mono.just(t.getT2()) : Mono.delay(Duration.ofMillis(500))
+                                    .doOnNext(i -> polledDuringTransaction.set(polledRecords.get()))
+                                    .thenReturn(t.getT2()));
+                    return sendAndCommit(destTopic, delayed, -1);
+                });
+
+        Disposable disposable = flux.subscribe();
+        waitForTransactions(count / maxPollRecords);
+
+        disposable.dispose();
+        verifyTransaction(count, count);
+        assertEquals(maxPollRecords * (prefetch + 1), polledDuringTransaction.get());
+        assertEquals(0, producer.abortCount);
+    }
+
     @Test
     public void transactionBeginCommit() throws Exception {
         int count = 600;